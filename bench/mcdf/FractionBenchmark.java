@@ -0,0 +1,94 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link Fraction} operations on random fractions with numerators and
+ * denominators of a given number of decimal digits
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class FractionBenchmark {
+	/** Decimal digits of every numerator and denominator */
+	@Param({"100", "1000"})
+	public int digits;
+
+	/** First operand */
+	private Fraction a;
+
+	/** Second operand */
+	private Fraction b;
+
+	/** Numerator of a over the denominator of b, which shares a large factor with {@link #denominator} */
+	private BigInteger numerator;
+
+	/** Product of both denominators */
+	private BigInteger denominator;
+
+	/**
+	 * Creates the operands from a fixed seed so every run uses the same numbers
+	 */
+	@Setup
+	public void setUp() {
+		Random random = new Random(23_13L);
+		int bits = (int) Math.ceil(digits * Math.log(10) / Math.log(2));
+		a = new Fraction(new BigInteger(bits, random), new BigInteger(bits, random).setBit(bits - 1));
+		b = new Fraction(new BigInteger(bits, random), new BigInteger(bits, random).setBit(bits - 1));
+		numerator = a.rawNumerator().multiply(b.rawDenominator());
+		denominator = a.rawDenominator().multiply(b.rawDenominator());
+	}
+
+	/**
+	 * Adds the operands
+	 * @return a + b
+	 */
+	@Benchmark
+	public Fraction add() {
+		return a.add(b);
+	}
+
+	/**
+	 * Multiplies the operands
+	 * @return a * b
+	 */
+	@Benchmark
+	public Fraction multiply() {
+		return a.multiply(b);
+	}
+
+	/**
+	 * Reduces a fraction with a large common factor
+	 * @return the reduced fraction
+	 */
+	@Benchmark
+	public Fraction reduce() {
+		return new Fraction(numerator, denominator).reduce();
+	}
+
+	/**
+	 * Adds the operands with a {@link FractionAccumulator}
+	 * @return a + b
+	 */
+	@Benchmark
+	public Fraction accumulator() {
+		return new FractionAccumulator().add(a).add(b).sum();
+	}
+}
@@ -0,0 +1,78 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of loading the CSV file and of the multiset helper of the original recursion.
+ * Run from the repository root so the CSV is found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LoadBenchmark {
+	/** Multiset with one entry per weight class of the shipped table */
+	private HashMap<BigInteger, Integer> multiset;
+
+	/** Weight added to the multiset */
+	private BigInteger weight;
+
+	/**
+	 * Fills the multiset from the shipped table
+	 * @throws Exception if the CSV file cannot be read
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		WeightTable table = WeightTable.fromCSV("23w13a_or_b_vote_weights.csv");
+		multiset = new HashMap<BigInteger, Integer>();
+		for(int i = 0; i < table.getClassCount(); i++)
+			multiset.put(table.getClassWeight(i), i + 1);
+		weight = table.getClassWeight(2);
+	}
+
+	/**
+	 * Adds a weight to a copy of the multiset
+	 * @return the new multiset
+	 */
+	@Benchmark
+	public HashMap<BigInteger, Integer> multisetAdd() {
+		return VoteProbabilityCalculator.addToMultiset(multiset, weight);
+	}
+
+	/**
+	 * Loads the CSV file into a weight table
+	 * @return the weight table
+	 * @throws Exception if the CSV file cannot be read
+	 */
+	@Benchmark
+	public WeightTable weightTable() throws Exception {
+		return WeightTable.fromCSV("23w13a_or_b_vote_weights.csv");
+	}
+
+	/**
+	 * Loads the CSV file into the static map of {@link VoteProbabilityCalculator}
+	 * @return the loaded map
+	 * @throws Exception if the CSV file cannot be read
+	 */
+	@Benchmark
+	public HashMap<String, BigInteger> loadCSV() throws Exception {
+		VoteProbabilityCalculator.voteWeights.clear();
+		VoteProbabilityCalculator.loadCSV();
+		return VoteProbabilityCalculator.voteWeights;
+	}
+}
@@ -0,0 +1,135 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the weight class recursion, top-down and bottom-up, and of the closed form
+ * engine for always_flying on the shipped table with a 30% extra effect chance. Run from the
+ * repository root so the CSV is found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class RecursionBenchmark {
+	/** new_vote_extra_effect_max_count value */
+	@Param({"1", "2", "3", "4", "5", "6"})
+	public int maxCount;
+
+	/** Weight classes of the shipped vote list */
+	private WeightTable table;
+
+	/** Weight class of always_flying */
+	private int eventClass;
+
+	/** Probability that an extra vote will be added at each step */
+	private Fraction chance;
+
+	/**
+	 * Loads the shipped table
+	 * @throws Exception if the CSV file cannot be read
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		table = WeightTable.fromCSV("23w13a_or_b_vote_weights.csv");
+		eventClass = table.classOfVote("always_flying");
+		chance = new Fraction(BigInteger.valueOf(30), BigInteger.valueOf(100));
+	}
+
+	/**
+	 * Top-down recursion with a memo table
+	 * @return the probability without the repeal factor
+	 */
+	@Benchmark
+	public Fraction weightClass() {
+		return new WeightClassEngine(table, eventClass, chance, maxCount + 1).probabilityGivenMultipleRounds();
+	}
+
+	/**
+	 * Bottom-up table over the same states
+	 * @return the probability without the repeal factor
+	 */
+	@Benchmark
+	public Fraction bottomUp() {
+		return new WeightClassEngine(table, eventClass, chance, maxCount + 1).probabilityBottomUp();
+	}
+
+	/**
+	 * Closed form sum of the position probabilities
+	 * @return the probability without the repeal factor
+	 */
+	@Benchmark
+	public Fraction closedForm() {
+		return new ClosedFormEngine(table, eventClass, maxCount + 1).probability(chance);
+	}
+
+	/**
+	 * Original per-vote recursion of {@link VoteProbabilityCalculator}. Only run at the low max
+	 * counts since it slows down much faster than the others.
+	 */
+	@State(Scope.Benchmark)
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+	@Fork(1)
+	public static class Legacy {
+		/** new_vote_extra_effect_max_count value */
+		@Param({"1", "2", "3"})
+		public int maxCount;
+
+		/** Weight of always_flying */
+		private BigInteger eventWeight;
+
+		/** Weights of every other vote */
+		private ArrayList<BigInteger> otherWeights;
+
+		/** Probability that an extra vote will be added at each step */
+		private Fraction chance;
+
+		/**
+		 * Loads the shipped table and lists the weights of the other votes
+		 * @throws Exception if the CSV file cannot be read
+		 */
+		@Setup
+		public void setUp() throws Exception {
+			WeightTable table = WeightTable.fromCSV("23w13a_or_b_vote_weights.csv");
+			int eventClass = table.classOfVote("always_flying");
+			eventWeight = table.getClassWeight(eventClass);
+			otherWeights = new ArrayList<BigInteger>();
+			for(int i = 0; i < table.getClassCount(); i++) {
+				int count = table.getVoteCount(i) - (i == eventClass ? 1 : 0);
+				for(int j = 0; j < count; j++)
+					otherWeights.add(table.getClassWeight(i));
+			}
+			chance = new Fraction(BigInteger.valueOf(30), BigInteger.valueOf(100));
+		}
+
+		/**
+		 * Runs the original recursion with a new cache
+		 * @return the probability without the repeal factor
+		 */
+		@Benchmark
+		public Fraction legacy() {
+			return VoteProbabilityCalculator.probabilityGivenMultipleRounds(eventWeight, otherWeights,
+					new HashMap<BigInteger, Integer>(), maxCount + 1, chance, new HashMap<HashMap<BigInteger, Integer>, Fraction>());
+		}
+	}
+}
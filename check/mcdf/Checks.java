@@ -0,0 +1,586 @@
+package mcdf;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cross-checks of the engines against each other. Every engine is compared with
+ * {@link WeightClassEngine}, which follows the original recursion most closely. Prints one line
+ * per check and exits with status 1 if any check fails.
+ * <p>
+ * Run from the repository root so the CSV is found:
+ * javac -d out src/mcdf/*.java check/mcdf/*.java
+ * java -cp out mcdf.Checks
+ */
+public class Checks {
+	/** Descriptions of the checks that failed */
+	private static final ArrayList<String> failures = new ArrayList<String>();
+
+	/** Largest allowed difference between an approximate result and the exact one */
+	private static final BigDecimal TOLERANCE = new BigDecimal("1e-12");
+
+	/** Number of checks run */
+	private static int checks;
+
+	/**
+	 * Runs every check
+	 * @param args not used
+	 * @throws Exception if the CSV file cannot be read
+	 */
+	public static void main(String[] args) throws Exception {
+		WeightTable shipped = WeightTable.fromCSV("23w13a_or_b_vote_weights.csv");
+		WeightTable readmeExample = table(1, 2, 3, 4);
+		WeightTable twoVotes = table(1, 2);
+		Fraction chance = new Fraction(BigInteger.valueOf(30), BigInteger.valueOf(100));
+
+		//Lists with fewer votes than the rounds remove every vote in the deepest states
+		for(int maxCount = 0; maxCount <= 5; maxCount++) {
+			checkMultiTarget("two votes", twoVotes, chance, maxCount);
+			checkMultiTarget("readme example", readmeExample, chance, maxCount);
+		}
+		for(int maxCount = 0; maxCount <= 3; maxCount++)
+			checkMultiTarget("shipped table", shipped, chance, maxCount);
+
+		for(int maxCount = 0; maxCount <= 5; maxCount++)
+			checkModular("readme example", readmeExample, chance, maxCount);
+		for(int maxCount = 0; maxCount <= 6; maxCount += 3)
+			checkModular("shipped table", shipped, chance, maxCount);
+
+		for(int maxCount = 0; maxCount <= 8; maxCount++)
+			checkClosedForm("shipped table", shipped, chance, maxCount);
+		for(int maxCount = 0; maxCount <= 5; maxCount++)
+			checkClosedForm("readme example", readmeExample, chance, maxCount);
+
+		long[] pairWeights = {1, 2, 2, 3, 3, 3};
+		for(int maxCount = 0; maxCount <= 6; maxCount++)
+			checkCooccurrence("weights 1,2,2,3,3,3", pairWeights, chance, maxCount);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for(int maxCount = 0; maxCount <= 6; maxCount++)
+			checkParallel("shipped table", shipped, chance, maxCount, pool);
+		pool.shutdown();
+
+		ProbabilityCalculator calculator = new ProbabilityCalculator(shipped);
+		for(int maxCount = 0; maxCount <= 5; maxCount++)
+			checkBackends("shipped table", calculator, maxCount);
+		for(int maxCount = 1; maxCount <= 5; maxCount += 2) {
+			checkWithin("shipped table", calculator, new BigDecimal("1e-12"), 0, maxCount);
+			checkWithin("shipped table", calculator, new BigDecimal("1e-40"), 0, maxCount);
+			checkWithin("shipped table", calculator, new BigDecimal("1e-12"), 3, maxCount);
+		}
+		for(int maxCount = 0; maxCount <= 4; maxCount += 2)
+			checkHorizon("shipped table", shipped, calculator, maxCount, new int[] {0, 1, 2, 10, 100});
+
+		for(BoundedMemoTable.EvictionPolicy policy : BoundedMemoTable.EvictionPolicy.values()) {
+			for(int maxCount = 4; maxCount <= 6; maxCount++)
+				checkBoundedMemo("shipped table", calculator, policy, 4096, maxCount);
+		}
+
+		for(int maxCount = 0; maxCount <= 6; maxCount++) {
+			checkDistribution("weights 1,2,2,3,3,3", pairWeights, maxCount);
+			checkDistribution("readme example", new long[] {1, 2, 3, 4}, maxCount);
+		}
+
+		//Moves to an existing weight, to a new weight, onto the weight of another vote and back
+		String[][] edits = {{"b", "3"}, {"c", "7"}, {"a", "4"}, {"d", "1"}, {"b", "2"}, {"c", "3"}};
+		for(int maxCount = 0; maxCount <= 4; maxCount++) {
+			checkIncremental("readme example", voteWeights(1, 2, 3, 4), edits, maxCount);
+			checkIncremental("weights 1,2,2,3,3,3", voteWeights(pairWeights), edits, maxCount);
+		}
+
+		VoteProbabilityCalculator.loadCSV();
+		ForkJoinPool simulationPool = new ForkJoinPool(2);
+		for(int maxCount = 0; maxCount <= 5; maxCount++) {
+			checkMonteCarlo("readme example", voteWeights(1, 2, 3, 4), "a", maxCount, 200_000, simulationPool);
+			checkMonteCarlo("readme example", voteWeights(1, 2, 3, 4), "d", maxCount, 200_000, simulationPool);
+		}
+		for(int maxCount = 2; maxCount <= 5; maxCount += 3)
+			checkMonteCarlo("shipped table", VoteProbabilityCalculator.voteWeights, "always_flying", maxCount, 1_000_000, simulationPool);
+		simulationPool.shutdown();
+
+		checkPersistentStore(readmeExample, table(1, 2, 3, 5), chance);
+
+		System.out.println(checks + " checks, " + failures.size() + " failed");
+		for(String failure : failures)
+			System.out.println("FAILED " + failure);
+		if(!failures.isEmpty())
+			System.exit(1);
+	}
+
+	/**
+	 * Compares every weight class of {@link MultiTargetEngine} with {@link WeightClassEngine}
+	 * @param name name of the table in the output
+	 * @param table weight table to check
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkMultiTarget(String name, WeightTable table, Fraction chance, int maxCount) {
+		Fraction[] results = new MultiTargetEngine(table, maxCount + 1).probabilities(chance);
+		for(int c = 0; c < table.getClassCount(); c++) {
+			Fraction expected = new WeightClassEngine(table, c, chance, maxCount + 1).probabilityGivenMultipleRounds();
+			check("multiTarget " + name + " class=" + c + " max_count=" + maxCount, expected, results[c]);
+		}
+	}
+
+	/**
+	 * Compares {@link WeightClassEngine#probabilityParallel} with the single thread recursion for
+	 * every weight class
+	 * @param name name of the table in the output
+	 * @param table weight table to check
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 * @param pool pool that runs the branch tasks
+	 */
+	private static void checkParallel(String name, WeightTable table, Fraction chance, int maxCount, ForkJoinPool pool) {
+		for(int c = 0; c < table.getClassCount(); c++) {
+			Fraction expected = new WeightClassEngine(table, c, chance, maxCount + 1).probabilityGivenMultipleRounds();
+			Fraction actual = new WeightClassEngine(table, c, chance, maxCount + 1).probabilityParallel(pool);
+			check("parallel " + name + " class=" + c + " max_count=" + maxCount, expected, actual);
+		}
+	}
+
+	/**
+	 * Compares {@link DoubleBackend} and {@link BigDecimalBackend} with the exact result for one
+	 * vote of every weight class
+	 * @param name name of the table in the output
+	 * @param calculator calculator of the table to check
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkBackends(String name, ProbabilityCalculator calculator, int maxCount) {
+		BigInteger repeal = BigInteger.valueOf(50);
+		BigInteger chance = BigInteger.valueOf(30);
+		for(String vote : votePerClass(calculator.getTable())) {
+			Fraction exact = calculator.probability(vote, repeal, chance, maxCount);
+			BigDecimal approximate = BigDecimal.valueOf(calculator.probability(vote, new DoubleBackend(), repeal, chance, maxCount));
+			checkClose("double " + name + " vote=" + vote + " max_count=" + maxCount, exact, approximate);
+			approximate = calculator.probability(vote, new BigDecimalBackend(new MathContext(30)), repeal, chance, maxCount);
+			checkClose("bigDecimal " + name + " vote=" + vote + " max_count=" + maxCount, exact, approximate);
+		}
+	}
+
+	/**
+	 * Checks that {@link ProbabilityCalculator#probabilityWithin} contains the exact result and is
+	 * no wider than the tolerance for one vote of every weight class. With a low precision the
+	 * interval calculation is also checked to be too wide, so the exact fallback must have run.
+	 * @param name name of the table in the output
+	 * @param calculator calculator of the table to check
+	 * @param tolerance largest allowed width of the interval
+	 * @param precision significant digits of the interval calculation, or 0 for the default
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkWithin(String name, ProbabilityCalculator calculator, BigDecimal tolerance, int precision,
+			int maxCount) {
+		BigInteger repeal = BigInteger.valueOf(50);
+		BigInteger chance = BigInteger.valueOf(30);
+		String description = (precision == 0 ? "within " : "within fallback ") + name + " tolerance=" + tolerance
+				+ " max_count=" + maxCount;
+		for(String vote : votePerClass(calculator.getTable())) {
+			Fraction exact = calculator.probability(vote, repeal, chance, maxCount);
+			Interval interval;
+			if(precision == 0) {
+				interval = calculator.probabilityWithin(vote, tolerance, repeal, chance, maxCount);
+			} else {
+				Interval tooWide = calculator.probability(vote, new IntervalBackend(precision), repeal, chance, maxCount);
+				check(description + " vote=" + vote + " forced", tooWide.width().compareTo(tolerance) > 0,
+						"interval " + tooWide + " already meets the tolerance");
+				interval = calculator.probabilityWithin(vote, tolerance, precision, repeal, chance, maxCount);
+			}
+			check(description + " vote=" + vote, interval.contains(exact) && interval.width().compareTo(tolerance) <= 0,
+					"interval " + interval + " does not hold " + exact + " within the tolerance");
+		}
+	}
+
+	/**
+	 * Compares the recursion with a {@link BoundedMemoTable} under a small budget with the exact
+	 * result for one vote of every weight class, and checks that the table had to evict results
+	 * @param name name of the table in the output
+	 * @param calculator calculator of the table to check
+	 * @param policy eviction rule of the memo table
+	 * @param budget memory budget of the memo table in bytes
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkBoundedMemo(String name, ProbabilityCalculator calculator, BoundedMemoTable.EvictionPolicy policy,
+			long budget, int maxCount) {
+		BigInteger repeal = BigInteger.valueOf(50);
+		BigInteger chance = BigInteger.valueOf(30);
+		for(String vote : votePerClass(calculator.getTable())) {
+			String description = "boundedMemo " + policy + " " + name + " vote=" + vote + " max_count=" + maxCount;
+			BoundedMemoTable<Fraction> memo = BoundedMemoTable.forFractions(budget, policy);
+			Fraction actual = calculator.probability(vote, memo, repeal, chance, maxCount);
+			check(description, calculator.probability(vote, repeal, chance, maxCount), actual);
+			check(description + " evicted", memo.getEvictions() > 0, "no results were evicted: " + memo);
+		}
+	}
+
+	/**
+	 * Checks that the 95% confidence interval of a {@link MonteCarloEstimator} run contains the
+	 * exact result. A correct interval still misses one run in 20, so the seed is fixed to make
+	 * the check repeatable and only a few votes are checked.
+	 * @param name name of the table in the output
+	 * @param voteWeights map of the vote IDs and their weights
+	 * @param vote ID of the vote to check
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 * @param samples number of votes to simulate
+	 * @param pool pool that runs the samples. Its parallelism is part of the fixed seed.
+	 */
+	private static void checkMonteCarlo(String name, Map<String, BigInteger> voteWeights, String vote, int maxCount,
+			long samples, ForkJoinPool pool) {
+		Fraction exact = new ProbabilityCalculator(new WeightTable(voteWeights)).probability(vote, BigInteger.valueOf(50),
+				BigInteger.valueOf(30), maxCount);
+		double value = new BigDecimal(exact.getNumerator()).divide(new BigDecimal(exact.getDenominator()), MathContext.DECIMAL64)
+				.doubleValue();
+		MonteCarloEstimator.Estimate estimate = new MonteCarloEstimator(voteWeights).estimate(vote, 50, 30, maxCount, samples,
+				23_13L, pool);
+		check("monteCarlo " + name + " vote=" + vote + " max_count=" + maxCount,
+				estimate.getLower() <= value && value <= estimate.getUpper(), "interval " + estimate + " does not hold " + value);
+	}
+
+	/**
+	 * Checks that {@link PersistentMemoStore} reads back what it wrote, keeps every complete
+	 * record of a file cut off in the last record and keeps the results of different tables apart
+	 * @param table weight table whose results are stored
+	 * @param otherTable weight table with the same number of classes but different weights
+	 * @param chance probability that an extra vote will be added at each step
+	 * @throws IOException if the temporary file cannot be used
+	 */
+	private static void checkPersistentStore(WeightTable table, WeightTable otherTable, Fraction chance) throws IOException {
+		Path path = Files.createTempFile("checks", ".memo");
+		Files.delete(path);
+		int rounds = 4;
+		Fraction large = new Fraction(BigInteger.TEN.pow(40).add(BigInteger.ONE), BigInteger.valueOf(3).pow(90));
+		Fraction last = new Fraction(BigInteger.valueOf(-7), BigInteger.valueOf(11));
+		Fraction expected = new WeightClassEngine(table, 0, chance, rounds).probabilityGivenMultipleRounds();
+		try {
+			try(PersistentMemoStore store = new PersistentMemoStore(path)) {
+				MemoTable<Fraction> memo = store.memoFor(table, 0, chance, rounds);
+				check("persistentStore filled", expected,
+						new WeightClassEngine(table, 0, chance, rounds).probabilityGivenMultipleRounds(memo));
+				memo.put(-1L, large);
+				memo.put(-2L, last);
+			}
+
+			try(PersistentMemoStore store = new PersistentMemoStore(path)) {
+				MemoTable<Fraction> memo = store.memoFor(table, 0, chance, rounds);
+				checkIdentical("persistentStore reopened large", large, memo.get(-1L));
+				checkIdentical("persistentStore reopened last", last, memo.get(-2L));
+				check("persistentStore reopened results", expected,
+						new WeightClassEngine(table, 0, chance, rounds).probabilityGivenMultipleRounds(memo));
+				check("persistentStore other table", store.memoFor(otherTable, 0, chance, rounds).get(-1L) == null,
+						"a result of one table was found under another table");
+				check("persistentStore other class", store.memoFor(table, 1, chance, rounds).get(-1L) == null,
+						"a result of one weight class was found under another weight class");
+			}
+
+			//Cut the last record off by one byte, which must only lose that record
+			long size = Files.size(path);
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				channel.truncate(size - 1);
+			}
+			try(PersistentMemoStore store = new PersistentMemoStore(path)) {
+				MemoTable<Fraction> memo = store.memoFor(table, 0, chance, rounds);
+				checkIdentical("persistentStore truncated large", large, memo.get(-1L));
+				check("persistentStore truncated last", memo.get(-2L) == null, "the cut off record was loaded");
+				check("persistentStore truncated results", expected,
+						new WeightClassEngine(table, 0, chance, rounds).probabilityGivenMultipleRounds(memo));
+				memo.put(-2L, last);
+			}
+			check("persistentStore truncated size", Files.size(path) == size,
+					"file is " + Files.size(path) + " bytes after rewriting the cut off record but was " + size);
+			try(PersistentMemoStore store = new PersistentMemoStore(path)) {
+				checkIdentical("persistentStore rewritten last", last, store.memoFor(table, 0, chance, rounds).get(-2L));
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * Compares every weight class of {@link ModularEngine} with {@link WeightClassEngine}
+	 * @param name name of the table in the output
+	 * @param table weight table to check
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkModular(String name, WeightTable table, Fraction chance, int maxCount) {
+		for(int c = 0; c < table.getClassCount(); c++) {
+			Fraction expected = new WeightClassEngine(table, c, chance, maxCount + 1).probabilityGivenMultipleRounds();
+			Fraction actual = new ModularEngine(table, c, maxCount + 1).probability(chance, ForkJoinPool.commonPool());
+			check("modular " + name + " class=" + c + " max_count=" + maxCount, expected, actual);
+		}
+	}
+
+	/**
+	 * Checks every weight class of {@link ClosedFormEngine} with
+	 * {@link ClosedFormEngine#matchesRecursion}
+	 * @param name name of the table in the output
+	 * @param table weight table to check
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkClosedForm(String name, WeightTable table, Fraction chance, int maxCount) {
+		for(int c = 0; c < table.getClassCount(); c++) {
+			String description = "closedForm " + name + " class=" + c + " max_count=" + maxCount;
+			checks++;
+			boolean passed = new ClosedFormEngine(table, c, maxCount + 1).matchesRecursion(chance);
+			System.out.println((passed ? "ok     " : "FAILED ") + description);
+			if(!passed)
+				failures.add(description + ": closed form differs from the recursion");
+		}
+	}
+
+	/**
+	 * Compares every pair of weight classes of {@link CooccurrenceEngine} with the probability
+	 * of the first vote of one class and the last vote of the other appearing, found by trying
+	 * every order of drawing single votes
+	 * @param name name of the table in the output
+	 * @param weights weight of each vote
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkCooccurrence(String name, long[] weights, Fraction chance, int maxCount) {
+		WeightTable table = table(weights);
+		Fraction[][] matrix = new CooccurrenceEngine(table, maxCount + 1).classMatrix(chance);
+		Fraction[] finalSets = new Fraction[1 << weights.length];
+		drawEverySet(weights, chance, maxCount + 1, 0, Fraction.ONE, finalSets);
+
+		for(int a = 0; a < table.getClassCount(); a++) {
+			for(int b = a; b < table.getClassCount(); b++) {
+				//Votes are sorted by weight, so the first and last vote of each class are known
+				int first = -1;
+				int last = -1;
+				for(int v = 0; v < weights.length; v++) {
+					if(first < 0 && BigInteger.valueOf(weights[v]).equals(table.getClassWeight(a)))
+						first = v;
+					if(BigInteger.valueOf(weights[v]).equals(table.getClassWeight(b)))
+						last = v;
+				}
+				if(first == last)
+					continue;
+
+				FractionAccumulator expected = new FractionAccumulator();
+				for(int set = 0; set < finalSets.length; set++) {
+					if(finalSets[set] != null && (set >> first & 1) == 1 && (set >> last & 1) == 1)
+						expected.add(finalSets[set]);
+				}
+				check("cooccurrence " + name + " classes=" + a + "," + b + " max_count=" + maxCount, expected.sum(), matrix[a][b]);
+			}
+		}
+	}
+
+	/**
+	 * Compares the lengths and the total of {@link ProbabilityCalculator#distribution} with the
+	 * sets of votes found by drawing every order, and checks that the lengths and the repeal
+	 * vote add up to one
+	 * @param name name of the weights in the output
+	 * @param weights weight of each vote, sorted in ascending order
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkDistribution(String name, long[] weights, int maxCount) {
+		BigInteger repeal = BigInteger.valueOf(50);
+		BigInteger chancePercentage = BigInteger.valueOf(30);
+		Fraction notRepeal = new Fraction(BigInteger.valueOf(50), BigInteger.valueOf(100));
+		Fraction[] finalSets = new Fraction[1 << weights.length];
+		drawEverySet(weights, new Fraction(chancePercentage, BigInteger.valueOf(100)), maxCount + 1, 0, Fraction.ONE, finalSets);
+
+		ProbabilityCalculator calculator = new ProbabilityCalculator(table(weights));
+		PositionDistribution distribution = calculator.distribution("a", repeal, chancePercentage, maxCount);
+		String description = "distribution " + name + " max_count=" + maxCount;
+
+		FractionAccumulator total = new FractionAccumulator().add(distribution.getRepeal());
+		for(int length = 1; length <= maxCount + 1; length++) {
+			FractionAccumulator expected = new FractionAccumulator();
+			for(int set = 0; set < finalSets.length; set++) {
+				if(finalSets[set] != null && Integer.bitCount(set) == length)
+					expected.add(finalSets[set]);
+			}
+			check(description + " length=" + length, expected.sum().multiply(notRepeal), distribution.getLength(length));
+			total.add(distribution.getLength(length));
+		}
+		check(description + " lengths sum", Fraction.ONE, total.sum());
+
+		//Vote a is the first vote, bit 0 of a set
+		FractionAccumulator appears = new FractionAccumulator();
+		for(int set = 1; set < finalSets.length; set += 2) {
+			if(finalSets[set] != null)
+				appears.add(finalSets[set]);
+		}
+		check(description + " total", appears.sum().multiply(notRepeal), distribution.getTotal());
+	}
+
+	/**
+	 * Adds the probability of every set of votes that a vote can end with, drawing one vote at a time
+	 * @param weights weight of each vote, sorted in ascending order
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param rounds total possible length of a combined vote
+	 * @param drawn bit set of the votes drawn so far
+	 * @param probability probability of drawing exactly those votes in this order
+	 * @param finalSets probability of ending with each bit set of votes, filled by the call
+	 */
+	private static void drawEverySet(long[] weights, Fraction chance, int rounds, int drawn, Fraction probability,
+			Fraction[] finalSets) {
+		long totalWeight = 0;
+		for(int v = 0; v < weights.length; v++) {
+			if((drawn >> v & 1) == 0)
+				totalWeight += weights[v];
+		}
+		int count = Integer.bitCount(drawn);
+		Fraction drawing = probability;
+		if(count > 0) {
+			Fraction ending = count == rounds || totalWeight == 0 ? probability : probability.multiply(Fraction.ONE.subtract(chance));
+			finalSets[drawn] = finalSets[drawn] == null ? ending : finalSets[drawn].add(ending);
+			drawing = count == rounds || totalWeight == 0 ? Fraction.ZERO : probability.multiply(chance);
+		}
+		if(drawing.getNumerator().signum() == 0)
+			return;
+		for(int v = 0; v < weights.length; v++) {
+			if((drawn >> v & 1) == 0)
+				drawEverySet(weights, chance, rounds, drawn | 1 << v,
+						drawing.multiply(new Fraction(BigInteger.valueOf(weights[v]), BigInteger.valueOf(totalWeight))), finalSets);
+		}
+	}
+
+	/**
+	 * Compares {@link Horizon#independent} with a {@link MarkovHorizon} that has one rule state
+	 * which always moves back to itself, for one vote of every weight class
+	 * @param name name of the table in the output
+	 * @param table weight table to check
+	 * @param calculator calculator of the table
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 * @param votes numbers of votes to check
+	 */
+	private static void checkHorizon(String name, WeightTable table, ProbabilityCalculator calculator, int maxCount, int[] votes) {
+		for(String vote : votePerClass(table)) {
+			Fraction single = calculator.probability(vote, BigInteger.valueOf(50), BigInteger.valueOf(30), maxCount);
+			MarkovHorizon markov = new MarkovHorizon(new Fraction[] {single}, new Fraction[][] {{Fraction.ONE}},
+					new Fraction[] {Fraction.ONE});
+			Fraction[] expected = Horizon.independent(single, votes);
+			Fraction[] actual = markov.within(votes);
+			for(int i = 0; i < votes.length; i++) {
+				String description = "horizon " + name + " vote=" + vote + " max_count=" + maxCount + " votes=" + votes[i];
+				check(description, expected[i], actual[i]);
+				check(description + " single", Horizon.independent(single, votes[i]), markov.within(votes[i]));
+			}
+		}
+	}
+
+	/**
+	 * Compares {@link IncrementalCalculator} with a new {@link ProbabilityCalculator} on the edited
+	 * table after each weight change. Every vote is calculated before each change so the cache of
+	 * the old weights is filled when the new ones are calculated.
+	 * @param name name of the table in the output
+	 * @param voteWeights map of the vote IDs and their weights before the changes
+	 * @param edits vote ID and new weight of each change, applied in order
+	 * @param maxCount new_vote_extra_effect_max_count value
+	 */
+	private static void checkIncremental(String name, HashMap<String, BigInteger> voteWeights, String[][] edits,
+			int maxCount) {
+		IncrementalCalculator incremental = new IncrementalCalculator(voteWeights);
+		String change = "";
+		for(int e = 0; e <= edits.length; e++) {
+			ProbabilityCalculator fresh = new ProbabilityCalculator(new WeightTable(voteWeights));
+			for(String vote : voteWeights.keySet()) {
+				Fraction expected = fresh.probability(vote, BigInteger.valueOf(50), BigInteger.valueOf(30), maxCount);
+				Fraction actual = incremental.probability(vote, BigInteger.valueOf(50), BigInteger.valueOf(30), maxCount);
+				check("incremental " + name + change + " vote=" + vote + " max_count=" + maxCount, expected, actual);
+			}
+			if(e < edits.length) {
+				BigInteger weight = new BigInteger(edits[e][1]);
+				incremental.setWeight(edits[e][0], weight);
+				voteWeights.put(edits[e][0], weight);
+				change += " " + edits[e][0] + "=" + edits[e][1];
+			}
+		}
+	}
+
+	/**
+	 * Records one check of two exact results
+	 * @param description description of the check
+	 * @param expected result of the reference engine
+	 * @param actual result of the engine being checked
+	 */
+	private static void check(String description, Fraction expected, Fraction actual) {
+		boolean passed = actual != null && expected.subtract(actual).getNumerator().signum() == 0;
+		check(description, passed, "expected " + expected + " but was " + actual);
+	}
+
+	/**
+	 * Records one check that a fraction has the same numerator and denominator, not only the
+	 * same value
+	 * @param description description of the check
+	 * @param expected fraction that was written
+	 * @param actual fraction that was read back
+	 */
+	private static void checkIdentical(String description, Fraction expected, Fraction actual) {
+		boolean passed = actual != null && expected.getNumerator().equals(actual.getNumerator())
+				&& expected.getDenominator().equals(actual.getDenominator());
+		check(description, passed, "expected " + expected + " but was " + actual);
+	}
+
+	/**
+	 * Records one check of an approximate result against an exact one
+	 * @param description description of the check
+	 * @param expected exact result
+	 * @param actual approximate result, which must be within {@link #TOLERANCE} of the exact one
+	 */
+	private static void checkClose(String description, Fraction expected, BigDecimal actual) {
+		BigDecimal exact = new BigDecimal(expected.getNumerator()).divide(new BigDecimal(expected.getDenominator()), MathContext.DECIMAL128);
+		BigDecimal error = exact.subtract(actual).abs();
+		check(description, error.compareTo(TOLERANCE) <= 0, "expected " + exact + " but was " + actual);
+	}
+
+	/**
+	 * Records one check
+	 * @param description description of the check
+	 * @param passed true if the check passed
+	 * @param detail what went wrong, added to the failures if the check did not pass
+	 */
+	private static void check(String description, boolean passed, String detail) {
+		checks++;
+		System.out.println((passed ? "ok     " : "FAILED ") + description);
+		if(!passed)
+			failures.add(description + ": " + detail);
+	}
+
+	/**
+	 * Picks one vote of every weight class
+	 * @param table weight table to pick from
+	 * @return vote IDs where element i is a vote of weight class i
+	 */
+	private static String[] votePerClass(WeightTable table) {
+		String[] votes = new String[table.getClassCount()];
+		for(String vote : table.getVoteIds())
+			votes[table.classOfVote(vote)] = vote;
+		return votes;
+	}
+
+	/**
+	 * Creates a weight table with one vote per weight, named a, b, c and so on
+	 * @param weights weight of each vote
+	 * @return the weight table
+	 */
+	private static WeightTable table(long... weights) {
+		return new WeightTable(voteWeights(weights));
+	}
+
+	/**
+	 * Creates a map with one vote per weight, named a, b, c and so on
+	 * @param weights weight of each vote
+	 * @return map of the vote IDs and their weights
+	 */
+	private static HashMap<String, BigInteger> voteWeights(long... weights) {
+		HashMap<String, BigInteger> voteWeights = new HashMap<String, BigInteger>();
+		for(int i = 0; i < weights.length; i++)
+			voteWeights.put(String.valueOf((char) ('a' + i)), BigInteger.valueOf(weights[i]));
+		return voteWeights;
+	}
+}
@@ -0,0 +1,61 @@
+package mcdf;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Approximate backend using BigDecimal with a configurable precision. Every operation is
+ * rounded to the MathContext, so the cost of each operation stays fixed no matter how
+ * many rounds are calculated.
+ */
+public class BigDecimalBackend implements NumericBackend<BigDecimal> {
+	/** Precision and rounding mode of every operation */
+	private final MathContext mathContext;
+
+	/**
+	 * Creates a backend with the precision and rounding mode
+	 * @param mathContext precision and rounding mode of every operation
+	 */
+	public BigDecimalBackend(MathContext mathContext) {
+		this.mathContext = mathContext;
+	}
+
+	@Override
+	public BigDecimal fromRatio(BigInteger numerator, BigInteger denominator) {
+		return new BigDecimal(numerator).divide(new BigDecimal(denominator), mathContext);
+	}
+
+	@Override
+	public BigDecimal add(BigDecimal a, BigDecimal b) {
+		return a.add(b, mathContext);
+	}
+
+	@Override
+	public BigDecimal multiply(BigDecimal a, BigDecimal b) {
+		return a.multiply(b, mathContext);
+	}
+
+	@Override
+	public BigDecimal divide(BigDecimal a, BigInteger divisor) {
+		return a.divide(new BigDecimal(divisor), mathContext);
+	}
+
+	@Override
+	public NumericBackend.Accumulator<BigDecimal> newAccumulator() {
+		return new NumericBackend.Accumulator<BigDecimal>() {
+			private BigDecimal sum = BigDecimal.ZERO;
+
+			@Override
+			public NumericBackend.Accumulator<BigDecimal> add(BigDecimal term, BigInteger factor) {
+				sum = sum.add(term.multiply(new BigDecimal(factor), mathContext), mathContext);
+				return this;
+			}
+
+			@Override
+			public BigDecimal sum() {
+				return sum;
+			}
+		};
+	}
+}
@@ -0,0 +1,254 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * Memo table that keeps the estimated memory of its results under a budget. When a new result
+ * goes over the budget, older results are evicted by one of the {@link EvictionPolicy} rules.
+ * An evicted result is only recalculated if the recursion reaches its state again, so the
+ * result does not change, only the time it takes. Hits, misses and evictions are counted.
+ * <p>
+ * Not thread-safe, like {@link LongHashMap}.
+ * @param <V> type of the cached results
+ */
+public class BoundedMemoTable<V> implements MemoTable<V> {
+	/** Estimated bytes used by an entry besides its numbers: map node, boxed key and objects */
+	private static final long ENTRY_OVERHEAD = 96;
+
+	/** Estimated bytes used by a BigInteger besides its magnitude */
+	private static final long BIG_INTEGER_OVERHEAD = 40;
+
+	/**
+	 * Rule used to choose which result is evicted
+	 */
+	public enum EvictionPolicy {
+		/** Evict the result that was used least recently */
+		LRU,
+
+		/**
+		 * Evict a result of the deepest state first. Deep states have the fewest branches below
+		 * them, so they are the cheapest to recalculate.
+		 */
+		DEEPEST_FIRST
+	}
+
+	/** Largest estimated number of bytes the results may use */
+	private final long budget;
+
+	/** Rule used to choose which result is evicted */
+	private final EvictionPolicy policy;
+
+	/** Estimates the bytes used by one result */
+	private final ToLongFunction<V> sizeEstimator;
+
+	/** Cached results. Kept in access order for LRU so the first entry is the least recently used. */
+	private final LinkedHashMap<Long, Entry<V>> results;
+
+	/** Keys of the results at each depth, only used by DEEPEST_FIRST */
+	private final ArrayList<LinkedHashSet<Long>> keysByDepth = new ArrayList<LinkedHashSet<Long>>();
+
+	/** Estimated bytes used by the cached results */
+	private long usedBytes;
+
+	/** Number of lookups that found a result */
+	private long hits;
+
+	/** Number of lookups that did not find a result */
+	private long misses;
+
+	/** Number of results evicted */
+	private long evictions;
+
+	/**
+	 * Creates an empty table
+	 * @param budget largest estimated number of bytes the results may use
+	 * @param policy rule used to choose which result is evicted
+	 * @param sizeEstimator estimates the bytes used by one result, such as {@link #fractionSize}
+	 * @throws IllegalArgumentException if budget is not positive
+	 */
+	public BoundedMemoTable(long budget, EvictionPolicy policy, ToLongFunction<V> sizeEstimator) {
+		if(budget <= 0)
+			throw new IllegalArgumentException("Memory budget must be positive.");
+		this.budget = budget;
+		this.policy = policy;
+		this.sizeEstimator = sizeEstimator;
+		results = new LinkedHashMap<Long, Entry<V>>(16, 0.75f, policy == EvictionPolicy.LRU);
+	}
+
+	/**
+	 * Creates an empty table of fractions
+	 * @param budget largest estimated number of bytes the fractions may use
+	 * @param policy rule used to choose which fraction is evicted
+	 * @return an empty table
+	 * @throws IllegalArgumentException if budget is not positive
+	 */
+	public static BoundedMemoTable<Fraction> forFractions(long budget, EvictionPolicy policy) {
+		return new BoundedMemoTable<Fraction>(budget, policy, BoundedMemoTable::fractionSize);
+	}
+
+	/**
+	 * Estimates the bytes used by a fraction from the bit lengths of its numerator and denominator
+	 * @param value fraction to measure
+	 * @return estimated bytes used by the fraction
+	 */
+	public static long fractionSize(Fraction value) {
+		return integerSize(value.rawNumerator()) + integerSize(value.rawDenominator());
+	}
+
+	/**
+	 * Estimates the bytes used by an integer from its bit length. The magnitude is stored in 32 bit words.
+	 * @param value integer to measure
+	 * @return estimated bytes used by the integer
+	 */
+	private static long integerSize(BigInteger value) {
+		return BIG_INTEGER_OVERHEAD + 4L * ((value.bitLength() + 31) / 32);
+	}
+
+	@Override
+	public V get(long key) {
+		Entry<V> entry = results.get(key);
+		if(entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	@Override
+	public void put(long key, V value) {
+		put(key, value, 0);
+	}
+
+	@Override
+	public void put(long key, V value, int depth) {
+		long size = ENTRY_OVERHEAD + sizeEstimator.applyAsLong(value);
+		remove(key);
+		results.put(key, new Entry<V>(value, depth, size));
+		usedBytes += size;
+		if(policy == EvictionPolicy.DEEPEST_FIRST) {
+			while(keysByDepth.size() <= depth)
+				keysByDepth.add(new LinkedHashSet<Long>());
+			keysByDepth.get(depth).add(key);
+		}
+
+		//Evict until the results fit, but always keep the result just stored
+		while(usedBytes > budget && results.size() > 1) {
+			long evicted = nextEviction(key);
+			remove(evicted);
+			evictions++;
+		}
+	}
+
+	/**
+	 * Chooses the result to evict next
+	 * @param newestKey key of the result just stored, which is not chosen
+	 * @return key of the result to evict
+	 */
+	private long nextEviction(long newestKey) {
+		if(policy == EvictionPolicy.LRU) {
+			Iterator<Long> keys = results.keySet().iterator();
+			long candidate = keys.next();
+			return candidate != newestKey ? candidate : keys.next();
+		}
+
+		for(int depth = keysByDepth.size() - 1; depth >= 0; depth--) {
+			for(long candidate : keysByDepth.get(depth)) {
+				if(candidate != newestKey)
+					return candidate;
+			}
+		}
+		throw new IllegalStateException("No result to evict.");
+	}
+
+	/**
+	 * Removes the result of the key if there is one
+	 * @param key packed key of the result
+	 */
+	private void remove(long key) {
+		Entry<V> entry = results.remove(key);
+		if(entry == null)
+			return;
+		usedBytes -= entry.size;
+		if(policy == EvictionPolicy.DEEPEST_FIRST)
+			keysByDepth.get(entry.depth).remove(key);
+	}
+
+	/**
+	 * Returns the number of cached results
+	 * @return the number of cached results
+	 */
+	public int size() {
+		return results.size();
+	}
+
+	/**
+	 * Returns the estimated bytes used by the cached results
+	 * @return the estimated bytes
+	 */
+	public long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Returns the number of lookups that found a result
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a result
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of results evicted to stay under the budget
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the counts of the table as a string, for example
+	 * hits=10 misses=5 evictions=2 entries=3 bytes=1200/4096
+	 * @return the counts in string format
+	 */
+	@Override
+	public String toString() {
+		return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " entries=" + results.size()
+				+ " bytes=" + usedBytes + "/" + budget;
+	}
+
+	/**
+	 * Cached result with the information needed to evict it
+	 * @param <V> type of the cached result
+	 */
+	private static final class Entry<V> {
+		/** The cached result */
+		private final V value;
+
+		/** Number of votes removed in the state of the result */
+		private final int depth;
+
+		/** Estimated bytes used by the entry */
+		private final long size;
+
+		private Entry(V value, int depth, long size) {
+			this.value = value;
+			this.depth = depth;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package mcdf;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional counters of the hot paths: recursion states per depth, memo hits and misses,
+ * Fraction constructions, GCD calls and a histogram of the numerator and denominator bit
+ * lengths. Counters are off by default and cost one field read per event while off. They
+ * are LongAdders, so threads of a parallel calculation do not contend on them.
+ * <p>
+ * Fractions are shared by every calculator, so there is one set of counters per JVM. It can
+ * be printed with {@link #report()} or read over JMX after {@link #registerMBean()}.
+ */
+public class CalculationMetrics implements CalculationMetricsMBean {
+	/** JMX name the metrics are registered under */
+	public static final String OBJECT_NAME = "mcdf:type=CalculationMetrics";
+
+	/** Largest depth with its own counter, deeper states are counted in the last one */
+	private static final int MAX_DEPTH = 64;
+
+	/** Number of bit length buckets, enough for any int bit length */
+	private static final int HISTOGRAM_BUCKETS = 33;
+
+	/** The counters of the JVM */
+	private static final CalculationMetrics INSTANCE = new CalculationMetrics();
+
+	/** True if the counters are updated */
+	private static volatile boolean enabled;
+
+	/** Recursion states calculated at each depth */
+	private final LongAdder[] nodesByDepth = newAdders(MAX_DEPTH);
+
+	/** Memo lookups that found a result */
+	private final LongAdder cacheHits = new LongAdder();
+
+	/** Memo lookups that did not find a result */
+	private final LongAdder cacheMisses = new LongAdder();
+
+	/** Fractions created */
+	private final LongAdder fractionsCreated = new LongAdder();
+
+	/** GCD calculations */
+	private final LongAdder gcdCalls = new LongAdder();
+
+	/** Numerator and denominator bit lengths, bucketed by powers of two */
+	private final LongAdder[] bitLengths = newAdders(HISTOGRAM_BUCKETS);
+
+	private CalculationMetrics() {
+	}
+
+	/**
+	 * Returns the counters of the JVM
+	 * @return the metrics
+	 */
+	public static CalculationMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns true if the counters are being updated. Checked by the hot paths before counting.
+	 * @return true if metrics are enabled
+	 */
+	public static boolean enabled() {
+		return enabled;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under {@link #OBJECT_NAME}. Does
+	 * nothing if they are already registered.
+	 * @throws IllegalStateException if the MBean cannot be registered
+	 */
+	public static synchronized void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if(!server.isRegistered(name))
+				server.registerMBean(INSTANCE, name);
+		} catch(JMException e) {
+			throw new IllegalStateException("Could not register " + OBJECT_NAME + ".", e);
+		}
+	}
+
+	/**
+	 * Counts one recursion state
+	 * @param depth number of votes removed in the state
+	 */
+	static void node(int depth) {
+		INSTANCE.nodesByDepth[Math.min(depth, MAX_DEPTH - 1)].increment();
+	}
+
+	/**
+	 * Counts one memo lookup
+	 * @param hit true if the lookup found a result
+	 */
+	static void cacheLookup(boolean hit) {
+		(hit ? INSTANCE.cacheHits : INSTANCE.cacheMisses).increment();
+	}
+
+	/**
+	 * Counts one fraction and the bit lengths of its numerator and denominator
+	 * @param numeratorBits bit length of the numerator
+	 * @param denominatorBits bit length of the denominator
+	 */
+	static void fraction(int numeratorBits, int denominatorBits) {
+		INSTANCE.fractionsCreated.increment();
+		INSTANCE.bitLengths[32 - Integer.numberOfLeadingZeros(numeratorBits)].increment();
+		INSTANCE.bitLengths[32 - Integer.numberOfLeadingZeros(denominatorBits)].increment();
+	}
+
+	/**
+	 * Counts one GCD calculation
+	 */
+	static void gcd() {
+		INSTANCE.gcdCalls.increment();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		CalculationMetrics.enabled = enabled;
+	}
+
+	@Override
+	public long[] getNodesByDepth() {
+		long[] counts = sums(nodesByDepth);
+		int length = counts.length;
+		while(length > 0 && counts[length - 1] == 0)
+			length--;
+		long[] trimmed = new long[length];
+		System.arraycopy(counts, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	@Override
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	@Override
+	public double getCacheHitRatio() {
+		long hits = cacheHits.sum();
+		long lookups = hits + cacheMisses.sum();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public long getFractionsCreated() {
+		return fractionsCreated.sum();
+	}
+
+	@Override
+	public long getGcdCalls() {
+		return gcdCalls.sum();
+	}
+
+	@Override
+	public long[] getBitLengthHistogram() {
+		return sums(bitLengths);
+	}
+
+	@Override
+	public void reset() {
+		for(LongAdder adder : nodesByDepth)
+			adder.reset();
+		for(LongAdder adder : bitLengths)
+			adder.reset();
+		cacheHits.reset();
+		cacheMisses.reset();
+		fractionsCreated.reset();
+		gcdCalls.reset();
+	}
+
+	/**
+	 * Returns every counter as readable text
+	 * @return the metrics report
+	 */
+	public String report() {
+		StringBuilder text = new StringBuilder("Metrics:\n");
+		long[] nodes = getNodesByDepth();
+		for(int depth = 0; depth < nodes.length; depth++)
+			text.append("  nodes at depth ").append(depth).append(": ").append(nodes[depth]).append('\n');
+		//The bottom-up table reads every state directly, so a run may not use a memo at all
+		if(getCacheHits() + getCacheMisses() == 0) {
+			text.append("  cache: no memo lookups\n");
+		} else {
+			text.append("  cache hits: ").append(getCacheHits()).append('\n');
+			text.append("  cache misses: ").append(getCacheMisses()).append('\n');
+			text.append(String.format("  cache hit ratio: %.4f%n", getCacheHitRatio()));
+		}
+		text.append("  fractions created: ").append(getFractionsCreated()).append('\n');
+		text.append("  gcd calls: ").append(getGcdCalls()).append('\n');
+		text.append("  numerator/denominator bit lengths:\n");
+		long[] histogram = getBitLengthHistogram();
+		for(int i = 0; i < histogram.length; i++) {
+			if(histogram[i] == 0)
+				continue;
+			if(i == 0)
+				text.append("    0: ");
+			else
+				text.append("    ").append(1L << (i - 1)).append('-').append((1L << i) - 1).append(": ");
+			text.append(histogram[i]).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Creates an array of counters starting at zero
+	 * @param size number of counters
+	 * @return the counters
+	 */
+	private static LongAdder[] newAdders(int size) {
+		LongAdder[] adders = new LongAdder[size];
+		for(int i = 0; i < size; i++)
+			adders[i] = new LongAdder();
+		return adders;
+	}
+
+	/**
+	 * Reads the current value of every counter
+	 * @param adders counters to read
+	 * @return the values of the counters
+	 */
+	private static long[] sums(LongAdder[] adders) {
+		long[] values = new long[adders.length];
+		for(int i = 0; i < adders.length; i++)
+			values[i] = adders[i].sum();
+		return values;
+	}
+}
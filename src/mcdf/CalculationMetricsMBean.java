@@ -0,0 +1,66 @@
+package mcdf;
+
+/**
+ * JMX view of {@link CalculationMetrics}
+ */
+public interface CalculationMetricsMBean {
+	/**
+	 * Returns true if the counters are being updated
+	 * @return true if metrics are enabled
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Turns the counters on or off
+	 * @param enabled true to update the counters
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Returns the number of recursion states calculated at each depth
+	 * @return array where element i is the number of states with i votes removed
+	 */
+	long[] getNodesByDepth();
+
+	/**
+	 * Returns the number of memo lookups that found a result
+	 * @return the number of cache hits
+	 */
+	long getCacheHits();
+
+	/**
+	 * Returns the number of memo lookups that did not find a result
+	 * @return the number of cache misses
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Returns the fraction of memo lookups that found a result
+	 * @return hits / (hits + misses), or 0 if there were no lookups
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * Returns the number of fractions created
+	 * @return the number of Fraction constructions
+	 */
+	long getFractionsCreated();
+
+	/**
+	 * Returns the number of GCD calculations used to simplify fractions
+	 * @return the number of GCD calls
+	 */
+	long getGcdCalls();
+
+	/**
+	 * Returns the histogram of numerator and denominator bit lengths of the created fractions
+	 * @return array where element 0 counts zero bit lengths and element i counts bit lengths in
+	 * [2^(i-1), 2^i)
+	 */
+	long[] getBitLengthHistogram();
+
+	/**
+	 * Sets every counter back to zero
+	 */
+	void reset();
+}
@@ -0,0 +1,237 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Engine that finds the same probability as {@link WeightClassEngine} in closed form instead
+ * of by recursion. Weighted drawing without replacement is the same as giving every vote an
+ * exponential clock with its weight as the rate and ordering the votes by when their clocks
+ * ring. With u_c = e^(-w_c x), the chance that the vote of interest t rings at time x after
+ * exactly k - 1 other votes is the coefficient of z^(k - 1) in
+ * <pre>
+ * w_t e^(-w_t x) prod_c (u_c + z (1 - u_c))^(a_c)
+ * </pre>
+ * where a_c is the number of other votes in class c. Only positions below the number of rounds
+ * are needed, so each factor can be cut to its terms of z below R. Expanding (1 - u_c)^(i_c)
+ * and keeping m_c factors of u_c gives
+ * <pre>
+ * (u_c + z (1 - u_c))^(a_c) = sum over m_c of u_c^(a_c - m_c) g_(c, m_c)(z)
+ * g_(c, m)(z) = sum over i from m of C(a_c, i) C(i, m) (-1)^(i - m) z^i
+ * </pre>
+ * and integrating w_t e^(-Lx) gives w_t / L with L = w_t + sum_c w_c (a_c - m_c). So
+ * <pre>
+ * P(position k) = sum over m of [z^(k - 1)] prod_c g_(c, m_c)(z) * w_t / L(m)
+ * </pre>
+ * The product only depends on the classes through L, so it is built one class at a time with
+ * the integer polynomials of every partial sum of w_c m_c kept in a map. A vector m with
+ * |m| &gt;= R only has terms of z^R and above, so those are dropped along the way. That leaves
+ * O(R^C) partial sums, each multiplied by O(R) polynomials of O(R) integer terms, which is
+ * O(C R^(C + 2)) integer products for R rounds and C weight classes and polynomial in the max
+ * count. Fractions are only made at the end, one per distinct L and position.
+ * <p>
+ * A combined vote reaches position k with probability p^(k - 1), so the probability of the vote
+ * of interest appearing is the sum of p^(k - 1) P(position k) over the rounds.
+ */
+public class ClosedFormEngine {
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Weight class of the vote of interest */
+	private final int eventClass;
+
+	/** Total possible length of a combined vote (new_vote_extra_effect_max_count + 1) */
+	private final int rounds;
+
+	/** Number of votes of each weight class other than the vote of interest */
+	private final int[] otherCounts;
+
+	/** Pascal's triangle up to the largest count needed. binomials[n][k] = C(n, k) */
+	private final BigInteger[][] binomials;
+
+	/**
+	 * Creates an engine for one vote of interest
+	 * @param table weight classes of the full vote list
+	 * @param eventClass weight class of the vote that the user wants to find the probability of
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 */
+	public ClosedFormEngine(WeightTable table, int eventClass, int rounds) {
+		this.table = table;
+		this.eventClass = eventClass;
+		this.rounds = rounds;
+
+		otherCounts = new int[table.getClassCount()];
+		int largest = 0;
+		for(int i = 0; i < otherCounts.length; i++) {
+			otherCounts[i] = table.getVoteCount(i);
+			largest = Math.max(largest, otherCounts[i]);
+		}
+		otherCounts[eventClass]--;
+
+		binomials = new BigInteger[largest + 1][];
+		for(int n = 0; n <= largest; n++) {
+			binomials[n] = new BigInteger[n + 1];
+			binomials[n][0] = BigInteger.ONE;
+			binomials[n][n] = BigInteger.ONE;
+			for(int k = 1; k < n; k++)
+				binomials[n][k] = binomials[n - 1][k - 1].add(binomials[n - 1][k]);
+		}
+	}
+
+	/**
+	 * Finds the probability that the vote of interest is at each position of the full random
+	 * order of the votes
+	 * @return array where element k - 1 is the probability that the vote of interest is at
+	 * position k, for k from 1 to rounds
+	 */
+	public Fraction[] positionProbabilities() {
+		FractionAccumulator[] sums = new FractionAccumulator[rounds];
+		for(int k = 0; k < rounds; k++)
+			sums[k] = new FractionAccumulator();
+
+		BigInteger eventWeight = table.getClassWeight(eventClass);
+		for(Map.Entry<BigInteger, BigInteger[]> term : productsByRemovedWeight().entrySet()) {
+			Fraction perCoefficient = new Fraction(eventWeight, table.getTotalWeight().subtract(term.getKey()));
+			BigInteger[] coefficients = term.getValue();
+			for(int k = 0; k < rounds; k++) {
+				if(coefficients[k].signum() != 0)
+					sums[k].add(perCoefficient, coefficients[k]);
+			}
+		}
+
+		Fraction[] positions = new Fraction[rounds];
+		for(int k = 0; k < rounds; k++)
+			positions[k] = sums[k].sum();
+		return positions;
+	}
+
+	/**
+	 * Finds the probability of the vote of interest appearing as an exact polynomial in the
+	 * extra effect chance p. Coefficient k - 1 is the probability of position k.
+	 * @return polynomial equal to {@link WeightClassEngine#probabilityPolynomial()}
+	 */
+	public Polynomial probabilityPolynomial() {
+		return new Polynomial(positionProbabilities());
+	}
+
+	/**
+	 * Finds the probability of the vote of interest appearing anywhere in a vote including
+	 * combined votes.
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probability(Fraction chance) {
+		return probabilityPolynomial().evaluate(chance).reduce();
+	}
+
+	/**
+	 * Checks this engine against the recursion of {@link WeightClassEngine} with the same values
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return true if both engines find the same fraction
+	 */
+	public boolean matchesRecursion(Fraction chance) {
+		Fraction closedForm = probability(chance);
+		Fraction recursion = new WeightClassEngine(table, eventClass, chance, rounds).probabilityGivenMultipleRounds();
+		return closedForm.getNumerator().equals(recursion.getNumerator())
+				&& closedForm.getDenominator().equals(recursion.getDenominator());
+	}
+
+	/**
+	 * Builds prod_c g_(c, m_c)(z) cut below z^R for every vector m, adding up the vectors with the
+	 * same sum of w_c m_c
+	 * @return map from the sum of w_c m_c to the integer coefficients of z^0 to z^(R - 1)
+	 */
+	private HashMap<BigInteger, BigInteger[]> productsByRemovedWeight() {
+		HashMap<BigInteger, BigInteger[]> products = new HashMap<BigInteger, BigInteger[]>();
+		BigInteger[] one = zeroPolynomial();
+		one[0] = BigInteger.ONE;
+		products.put(BigInteger.ZERO, one);
+
+		for(int c = 0; c < otherCounts.length; c++) {
+			BigInteger[][] factors = classFactors(c);
+			HashMap<BigInteger, BigInteger[]> next = new HashMap<BigInteger, BigInteger[]>();
+			for(Map.Entry<BigInteger, BigInteger[]> entry : products.entrySet()) {
+				BigInteger[] product = entry.getValue();
+				int lowest = 0;
+				while(lowest < rounds && product[lowest].signum() == 0)
+					lowest++;
+
+				//g_(c, m) starts at z^m, so a larger m would only leave terms of z^R and above
+				for(int m = 0; m < factors.length && lowest + m < rounds; m++) {
+					BigInteger[] term = multiply(product, factors[m]);
+					BigInteger removedWeight = entry.getKey().add(table.getClassWeight(c).multiply(BigInteger.valueOf(m)));
+					BigInteger[] existing = next.get(removedWeight);
+					if(existing == null) {
+						next.put(removedWeight, term);
+					} else {
+						for(int k = 0; k < rounds; k++)
+							existing[k] = existing[k].add(term[k]);
+					}
+				}
+			}
+			products = next;
+		}
+
+		//Vectors whose terms all cancelled have nothing to add
+		products.values().removeIf(coefficients -> {
+			for(BigInteger coefficient : coefficients) {
+				if(coefficient.signum() != 0)
+					return false;
+			}
+			return true;
+		});
+		return products;
+	}
+
+	/**
+	 * Finds the polynomials g_(c, m)(z) of one weight class cut below z^R
+	 * @param weightClass the class c
+	 * @return array where element m is the coefficients of g_(c, m), for m up to
+	 * min(a_c, R - 1)
+	 */
+	private BigInteger[][] classFactors(int weightClass) {
+		int others = otherCounts[weightClass];
+		int highest = Math.min(others, rounds - 1);
+		BigInteger[][] factors = new BigInteger[highest + 1][];
+		for(int m = 0; m <= highest; m++) {
+			factors[m] = zeroPolynomial();
+			for(int i = m; i <= highest; i++) {
+				BigInteger coefficient = binomials[others][i].multiply(binomials[i][m]);
+				factors[m][i] = (i - m) % 2 == 0 ? coefficient : coefficient.negate();
+			}
+		}
+		return factors;
+	}
+
+	/**
+	 * Multiplies two polynomials and drops the terms of z^R and above
+	 * @param a coefficients of the first polynomial
+	 * @param b coefficients of the second polynomial
+	 * @return coefficients of a * b below z^R
+	 */
+	private BigInteger[] multiply(BigInteger[] a, BigInteger[] b) {
+		BigInteger[] product = zeroPolynomial();
+		for(int i = 0; i < rounds; i++) {
+			if(a[i].signum() == 0)
+				continue;
+			for(int j = 0; i + j < rounds; j++) {
+				if(b[j].signum() != 0)
+					product[i + j] = product[i + j].add(a[i].multiply(b[j]));
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Creates a polynomial with every coefficient below z^R set to zero
+	 * @return the coefficients
+	 */
+	private BigInteger[] zeroPolynomial() {
+		BigInteger[] coefficients = new BigInteger[rounds];
+		Arrays.fill(coefficients, BigInteger.ZERO);
+		return coefficients;
+	}
+}
@@ -0,0 +1,31 @@
+package mcdf;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memo table that can be shared by several threads. Two threads may calculate the same
+ * key at the same time, in which case both store the same result.
+ * @param <V> type of the cached results
+ */
+public class ConcurrentMemoTable<V> implements MemoTable<V> {
+	/** Cached results keyed by the packed key */
+	private final ConcurrentHashMap<Long, V> results = new ConcurrentHashMap<Long, V>();
+
+	@Override
+	public V get(long key) {
+		return results.get(key);
+	}
+
+	@Override
+	public void put(long key, V value) {
+		results.put(key, value);
+	}
+
+	/**
+	 * Returns the number of cached results
+	 * @return the number of cached results
+	 */
+	public int size() {
+		return results.size();
+	}
+}
@@ -0,0 +1,183 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+/**
+ * Engine that finds the probability of two different votes both appearing in the same combined
+ * vote for every pair of weight classes in one traversal.
+ * <p>
+ * A state is the number of votes drawn from each weight class of the full list. The traversal
+ * goes forward from the state where nothing is drawn, level by level, and finds the probability
+ * that the vote ends with exactly the drawn counts d. Votes of one weight class are
+ * interchangeable, so given the counts d every set of d_a votes of class a is equally likely to
+ * be the drawn one. A given vote of class a and a different given vote of class b are therefore
+ * both drawn with probability d_a d_b / (c_a c_b), or d_a (d_a - 1) / (c_a (c_a - 1)) when both are
+ * in class a, where c is the number of votes in each class. Every pair of classes adds up these
+ * terms over the same final states, so the whole matrix of vote pairs comes from one traversal.
+ */
+public class CooccurrenceEngine {
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Total possible length of a combined vote (new_vote_extra_effect_max_count + 1) */
+	private final int rounds;
+
+	/**
+	 * Table index step of each weight class. The table index of a count vector is the mixed
+	 * radix number with one digit per class, where each class can have at most
+	 * min(count, rounds) votes drawn.
+	 */
+	private final int[] strides;
+
+	/** Number of entries in the table */
+	private final int tableSize;
+
+	/**
+	 * Creates an engine for every pair of weight classes of the table
+	 * @param table weight classes of the full vote list
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 * @throws IllegalArgumentException if the table of drawn counts has more than Integer.MAX_VALUE entries
+	 */
+	public CooccurrenceEngine(WeightTable table, int rounds) {
+		this.table = table;
+		this.rounds = rounds;
+		int classes = table.getClassCount();
+		strides = new int[classes];
+		long size = 1;
+		for(int i = 0; i < classes; i++) {
+			strides[i] = (int) size;
+			size *= Math.min(table.getVoteCount(i), rounds) + 1;
+			if(size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Too many weight classes for " + rounds + " rounds.");
+		}
+		tableSize = (int) size;
+	}
+
+	/**
+	 * Finds the probability of two different votes both appearing in one vote for every pair of
+	 * weight classes
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return symmetric matrix where element [a][b] is the probability for a vote of class a and a
+	 * different vote of class b. Element [a][a] is zero if class a has only one vote. Repeal votes
+	 * are not considered.
+	 */
+	public Fraction[][] classMatrix(Fraction chance) {
+		int classes = table.getClassCount();
+		Fraction stopChance = Fraction.ONE.subtract(chance).reduce();
+		ArrayList<ArrayList<Integer>> levels = levelIndices();
+
+		//pairSums[a][b] adds the probability of each final state times d_a (d_b - [a == b])
+		FractionAccumulator[][] pairSums = new FractionAccumulator[classes][classes];
+		for(int a = 0; a < classes; a++) {
+			for(int b = a; b < classes; b++)
+				pairSums[a][b] = new FractionAccumulator();
+		}
+
+		//reached[idx] is the probability that the drawn counts are ever exactly the state
+		FractionAccumulator[] reached = new FractionAccumulator[tableSize];
+		reached[0] = new FractionAccumulator().add(Fraction.ONE);
+		int[] drawnCounts = new int[classes];
+
+		for(int level = 0; level <= rounds; level++) {
+			for(int idx : levels.get(level)) {
+				if(reached[idx] == null)
+					continue;
+				Fraction probability = reached[idx].sum();
+				reached[idx] = null;
+				decode(idx, drawnCounts);
+				if(CalculationMetrics.enabled())
+					CalculationMetrics.node(level);
+
+				BigInteger totalWeight = table.getTotalWeight();
+				for(int i = 0; i < classes; i++)
+					totalWeight = totalWeight.subtract(table.getClassWeight(i).multiply(BigInteger.valueOf(drawnCounts[i])));
+
+				//The first vote is always drawn. After that the vote stops when it is full, when
+				//no votes are left or when the extra effect chance fails.
+				Fraction ending;
+				Fraction drawing;
+				if(level == 0) {
+					ending = Fraction.ZERO;
+					drawing = probability;
+				} else if(level == rounds || totalWeight.signum() == 0) {
+					ending = probability;
+					drawing = Fraction.ZERO;
+				} else {
+					ending = probability.multiply(stopChance);
+					drawing = probability.multiply(chance);
+				}
+
+				if(ending.getNumerator().signum() != 0) {
+					for(int a = 0; a < classes; a++) {
+						for(int b = a; b < classes; b++) {
+							int both = drawnCounts[a] * (drawnCounts[b] - (a == b ? 1 : 0));
+							if(both > 0)
+								pairSums[a][b].add(ending, BigInteger.valueOf(both));
+						}
+					}
+				}
+
+				if(drawing.getNumerator().signum() != 0) {
+					Fraction perWeight = drawing.multiply(new Fraction(BigInteger.ONE, totalWeight));
+					for(int j = 0; j < classes; j++) {
+						int remaining = table.getVoteCount(j) - drawnCounts[j];
+						if(remaining == 0)
+							continue;
+						int branch = idx + strides[j];
+						if(reached[branch] == null)
+							reached[branch] = new FractionAccumulator();
+						reached[branch].add(perWeight, table.getClassWeight(j).multiply(BigInteger.valueOf(remaining)));
+					}
+				}
+			}
+		}
+
+		Fraction[][] matrix = new Fraction[classes][classes];
+		for(int a = 0; a < classes; a++) {
+			for(int b = a; b < classes; b++) {
+				long pairs = (long) table.getVoteCount(a) * (table.getVoteCount(b) - (a == b ? 1 : 0));
+				Fraction result = Fraction.ZERO;
+				if(pairs > 0)
+					result = pairSums[a][b].sum().multiply(new Fraction(BigInteger.ONE, BigInteger.valueOf(pairs))).reduce();
+				matrix[a][b] = result;
+				matrix[b][a] = result;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Groups the table indices by the number of votes drawn. Indices whose count vector draws
+	 * more than rounds votes are left out since they can never be reached.
+	 * @return list where element i holds the indices of every state with i votes drawn
+	 */
+	private ArrayList<ArrayList<Integer>> levelIndices() {
+		ArrayList<ArrayList<Integer>> levels = new ArrayList<ArrayList<Integer>>();
+		for(int level = 0; level <= rounds; level++)
+			levels.add(new ArrayList<Integer>());
+		int[] drawnCounts = new int[strides.length];
+		for(int idx = 0; idx < tableSize; idx++) {
+			int level = decode(idx, drawnCounts);
+			if(level <= rounds)
+				levels.get(level).add(idx);
+		}
+		return levels;
+	}
+
+	/**
+	 * Converts a table index back into the count vector it represents
+	 * @param idx table index
+	 * @param drawnCounts array that is filled with the counts of the index
+	 * @return the total number of votes drawn
+	 */
+	private int decode(int idx, int[] drawnCounts) {
+		int level = 0;
+		for(int i = strides.length - 1; i >= 0; i--) {
+			drawnCounts[i] = idx / strides[i];
+			idx %= strides[i];
+			level += drawnCounts[i];
+		}
+		return level;
+	}
+}
@@ -0,0 +1,110 @@
+package mcdf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Symmetric matrix of the probability of two votes both appearing in the next vote, for every
+ * pair of votes of a weight table. The diagonal holds the probability of the vote itself
+ * appearing. Only one value is stored per pair of weight classes, since every vote pair of the
+ * same two classes has the same probability.
+ */
+public class CooccurrenceMatrix {
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Vote IDs in the order of the rows and columns */
+	private final List<String> voteIds;
+
+	/** Probability for two different votes of each pair of weight classes, including the repeal factor */
+	private final Fraction[][] classPairs;
+
+	/** Probability of a single vote of each weight class appearing, including the repeal factor */
+	private final Fraction[] classSingles;
+
+	/**
+	 * Creates the matrix from the class results
+	 * @param table weight classes of the vote list
+	 * @param classPairs probability for two different votes of each pair of weight classes
+	 * @param classSingles probability of a single vote of each weight class appearing
+	 */
+	public CooccurrenceMatrix(WeightTable table, Fraction[][] classPairs, Fraction[] classSingles) {
+		this.table = table;
+		this.classPairs = classPairs;
+		this.classSingles = classSingles;
+		ArrayList<String> ids = new ArrayList<String>(table.getVoteIds());
+		Collections.sort(ids);
+		voteIds = Collections.unmodifiableList(ids);
+	}
+
+	/**
+	 * Returns the vote IDs in the order of the rows and columns
+	 * @return sorted unmodifiable list of the vote IDs
+	 */
+	public List<String> getVoteIds() {
+		return voteIds;
+	}
+
+	/**
+	 * Returns the probability of both votes appearing in the next vote
+	 * @param first ID String of the first vote
+	 * @param second ID String of the second vote
+	 * @return the exact probability, or the probability of the vote appearing if both IDs are equal
+	 * @throws IllegalArgumentException if a vote ID does not exist in the table
+	 */
+	public Fraction get(String first, String second) {
+		int firstClass = table.classOfVote(first);
+		int secondClass = table.classOfVote(second);
+		if(first.equals(second))
+			return classSingles[firstClass];
+		return classPairs[firstClass][secondClass];
+	}
+
+	/**
+	 * Writes the matrix as CSV with decimal values. The first row and column hold the vote IDs.
+	 * @param out destination of the CSV text
+	 * @param digits number of significant digits of each value
+	 * @throws IOException if the CSV cannot be written
+	 */
+	public void writeCSV(Writer out, int digits) throws IOException {
+		MathContext precision = new MathContext(digits);
+
+		//Convert each distinct class value once
+		int classes = classSingles.length;
+		String[][] pairText = new String[classes][classes];
+		String[] singleText = new String[classes];
+		for(int a = 0; a < classes; a++) {
+			singleText[a] = decimal(classSingles[a], precision);
+			for(int b = 0; b < classes; b++)
+				pairText[a][b] = decimal(classPairs[a][b], precision);
+		}
+
+		out.write("vote_id");
+		for(String id : voteIds)
+			out.write("," + id);
+		out.write("\n");
+		for(String row : voteIds) {
+			int rowClass = table.classOfVote(row);
+			out.write(row);
+			for(String column : voteIds)
+				out.write("," + (row.equals(column) ? singleText[rowClass] : pairText[rowClass][table.classOfVote(column)]));
+			out.write("\n");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Converts a fraction into decimal text
+	 * @param value fraction to convert
+	 * @param precision number of significant digits
+	 * @return the rounded decimal
+	 */
+	private static String decimal(Fraction value, MathContext precision) {
+		return new BigDecimal(value.getNumerator()).divide(new BigDecimal(value.getDenominator()), precision).toString();
+	}
+}
@@ -0,0 +1,63 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Fast approximate backend using double precision. Branch sums use Neumaier's compensated
+ * summation, which carries the rounding error of every addition so the sum of a level keeps
+ * close to full double precision. Results are usually accurate to about 1e-15.
+ */
+public class DoubleBackend implements NumericBackend<Double> {
+	@Override
+	public Double fromRatio(BigInteger numerator, BigInteger denominator) {
+		return numerator.doubleValue() / denominator.doubleValue();
+	}
+
+	@Override
+	public Double add(Double a, Double b) {
+		return a + b;
+	}
+
+	@Override
+	public Double multiply(Double a, Double b) {
+		return a * b;
+	}
+
+	@Override
+	public Double divide(Double a, BigInteger divisor) {
+		return a / divisor.doubleValue();
+	}
+
+	@Override
+	public NumericBackend.Accumulator<Double> newAccumulator() {
+		return new NeumaierSum();
+	}
+
+	/**
+	 * Compensated sum of doubles using Neumaier's variant of Kahan summation
+	 */
+	private static final class NeumaierSum implements NumericBackend.Accumulator<Double> {
+		/** Running sum */
+		private double sum;
+
+		/** Rounding error lost from the running sum so far */
+		private double compensation;
+
+		@Override
+		public NeumaierSum add(Double term, BigInteger factor) {
+			double value = term * factor.doubleValue();
+			double t = sum + value;
+			if(Math.abs(sum) >= Math.abs(value))
+				compensation += (sum - t) + value;
+			else
+				compensation += (value - t) + sum;
+			sum = t;
+			return this;
+		}
+
+		@Override
+		public Double sum() {
+			return sum + compensation;
+		}
+	}
+}
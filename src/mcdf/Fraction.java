@@ -1,127 +1,146 @@
 package mcdf;
 
 import java.math.BigInteger;
+import java.util.List;
 
 /**
  * Fraction object with numerator and denominator. No limit in precision, overflow will not occur.
+ * Fractions are immutable. Arithmetic results are not simplified right away because finding the
+ * GCF of very large numbers is the most expensive step. A fraction is simplified the first time
+ * its numerator, denominator or string is needed, or when {@link #reduce()} is called at a
+ * chosen checkpoint such as storing a result in a cache.
  */
 public class Fraction {
 	/**
 	 * The numerator of the number. It is an integer that can be positive or
 	 * negative.
 	 */
-	private BigInteger numerator;
+	private final BigInteger numerator;
 
 	/**
-	 * The denominator of the number. It is a whole number that will always be
-	 * positive.
+	 * The denominator of the number. It is a nonzero integer, positive once the
+	 * fraction is simplified.
 	 */
-	private BigInteger denominator;
-	
+	private final BigInteger denominator;
+
+	/**
+	 * True if the numerator and denominator have no common factor except 1 and the
+	 * denominator is positive
+	 */
+	private final boolean reduced;
+
+	/**
+	 * Simplified version of this fraction, calculated the first time it is needed. Fractions
+	 * are immutable, so threads that race to calculate it store equal values.
+	 */
+	private volatile Fraction reducedForm;
+
 	/**
 	 * Static number equal to zero
 	 */
-	public final static Fraction ZERO = new Fraction(new BigInteger("0"), new BigInteger("1"));
-	
+	public final static Fraction ZERO = new Fraction(BigInteger.ZERO, BigInteger.ONE, true);
+
 	/**
 	 * Static number equal to one
 	 */
-	public final static Fraction ONE = new Fraction(new BigInteger("1"), new BigInteger("1"));
+	public final static Fraction ONE = new Fraction(BigInteger.ONE, BigInteger.ONE, true);
 
 	/**
 	 * Constructor of Fraction using two BigIntegers for the numerator and
-	 * denominator. Constructor will check if simplification is possible.
-	 * 
+	 * denominator. The fraction is simplified when it is first needed.
+	 *
 	 * @param n Numerator of the number.
 	 * @param d Denominator of the number.
-	 * @throws IllegalArgumentException if denominator is equal to one.
+	 * @throws IllegalArgumentException if denominator is equal to zero.
 	 */
 	public Fraction(BigInteger n, BigInteger d) {
-		if (d.compareTo(BigInteger.ZERO) == 0) {
-			throw new IllegalArgumentException("Denominator of fraction equal to one.");
+		this(n, d, false);
+		if (d.signum() == 0) {
+			throw new IllegalArgumentException("Denominator of fraction equal to zero.");
 		}
+	}
 
+	/**
+	 * Constructor of Fraction that does not check the denominator
+	 * @param n Numerator of the number.
+	 * @param d Denominator of the number. Must not be zero.
+	 * @param reduced true if n and d have no common factor except 1 and d is positive
+	 */
+	private Fraction(BigInteger n, BigInteger d, boolean reduced) {
 		numerator = n;
 		denominator = d;
-		
-		simplifyFraction();
+		this.reduced = reduced;
+		if (CalculationMetrics.enabled())
+			CalculationMetrics.fraction(n.bitLength(), d.bitLength());
 	}
 
 	/**
-	 * Returns the numerator
+	 * Returns the numerator of the simplified fraction
 	 * @return the numerator
 	 */
 	public BigInteger getNumerator() {
-		return numerator;
+		return reduce().numerator;
 	}
 
 	/**
-	 * Returns the denominator
+	 * Returns the denominator of the simplified fraction. Always positive.
 	 * @return the denominator
 	 */
 	public BigInteger getDenominator() {
-		return denominator;
+		return reduce().denominator;
 	}
-	
+
 	/**
-	 * Simplifies the fraction so that numerator and denominator have no
-	 * common factor except 1
+	 * Returns the stored numerator, which may share a factor with the stored denominator
+	 * @return the numerator before simplification
 	 */
-	private void simplifyFraction() {
-		BigInteger gcf = euclideanAlgorithm(numerator.abs(), denominator.abs());
-		numerator = numerator.divide(gcf);
-		denominator = denominator.divide(gcf);
+	BigInteger rawNumerator() {
+		return numerator;
 	}
-	
+
 	/**
-	 * Will find the GCF of two BigIntegers using the euclidean algorithm
-	 * @param a the first number
-	 * @param b the second number
-	 * @return the GCF of the two provided numbers
+	 * Returns the stored denominator, which may share a factor with the stored numerator
+	 * and may be negative
+	 * @return the denominator before simplification
 	 */
-	private static BigInteger euclideanAlgorithm(BigInteger a, BigInteger b) {
-		if (a.equals(new BigInteger("0")))
-			return b;
-		if (b.equals(new BigInteger("0")))
-			return a;
+	BigInteger rawDenominator() {
+		return denominator;
+	}
 
-		BigInteger big;
-		BigInteger small;
-		BigInteger difference;
-		if (greaterThanWholeNumber(a, b)) {
-			big = a;
-			small = b;
-		} else {
-			big = b;
-			small = a;
-		}
-		while (!big.equals(small)) {
-			difference = big.subtract(small.multiply(big.divide(small))).abs();
-			if (difference.equals(new BigInteger("0"))) {
-				return small;
-			}
-			if (greaterThanWholeNumber(difference, small)) {
-				big = difference;
-			} else {
-				big = small;
-				small = difference;
-			}
-		}
-		return big;
+	/**
+	 * Sums every fraction in the list over a common denominator and simplifies the result
+	 * once. See {@link FractionAccumulator}.
+	 * @param addends the fractions to add
+	 * @return the simplified sum of the fractions
+	 */
+	public static Fraction sum(List<Fraction> addends) {
+		FractionAccumulator accumulator = new FractionAccumulator();
+		for (Fraction addend : addends)
+			accumulator.add(addend);
+		return accumulator.sum();
 	}
-	
+
 	/**
-	 * Returns true if the first BigInteger is greater than or equal to
-	 * the second BigInteger
-	 * @param a left hand number to be compared
-	 * @param b right hand number to be compared
-	 * @return true if a >= b
+	 * Simplifies the fraction so that numerator and denominator have no
+	 * common factor except 1 and the denominator is positive
+	 * @return the simplified fraction, which is this fraction if it is already simplified
 	 */
-	private static boolean greaterThanWholeNumber(BigInteger a, BigInteger b) // a>b?
-	{
-		return a.compareTo(b) > 0;
+	public Fraction reduce() {
+		if (reduced)
+			return this;
+		Fraction result = reducedForm;
+		if (result == null) {
+			BigInteger gcf = numerator.gcd(denominator);
+			if (CalculationMetrics.enabled())
+				CalculationMetrics.gcd();
+			if (denominator.signum() < 0)
+				gcf = gcf.negate();
+			result = new Fraction(numerator.divide(gcf), denominator.divide(gcf), true);
+			reducedForm = result;
+		}
+		return result;
 	}
-	
+
 	/**
 	 * Adds this fraction with the other provided number and returns their
 	 * sum
@@ -130,22 +149,20 @@ public class Fraction {
 	 */
 	public Fraction add(Fraction b) {
 		Fraction a = this;
-		BigInteger sumNumerator; // integer
-		BigInteger sumDenominator; // whole number
-		BigInteger aNumerator = a.getNumerator();
-		BigInteger bNumerator = b.getNumerator();
-		BigInteger aDenominator = a.getDenominator();
-		BigInteger bDenominator = b.getDenominator();
-		sumDenominator = aDenominator.multiply(bDenominator);
-		sumNumerator = aNumerator.multiply(bDenominator).add(bNumerator.multiply(aDenominator));
-		if(sumDenominator.compareTo(BigInteger.ZERO) < 0) {
-			sumDenominator = sumDenominator.negate();
-			sumNumerator = sumNumerator.negate();
-		}
-		Fraction result = new Fraction(sumNumerator, sumDenominator);
-		return result;
+		if (a.numerator.signum() == 0)
+			return b;
+		if (b.numerator.signum() == 0)
+			return a;
+
+		//Fractions with the same denominator only need their numerators added
+		if (a.denominator.equals(b.denominator))
+			return new Fraction(a.numerator.add(b.numerator), a.denominator, false);
+
+		BigInteger sumDenominator = a.denominator.multiply(b.denominator);
+		BigInteger sumNumerator = a.numerator.multiply(b.denominator).add(b.numerator.multiply(a.denominator));
+		return new Fraction(sumNumerator, sumDenominator, false);
 	}
-	
+
 	/**
 	 * Subtracts the provided fraction from this fraction and returns their
 	 * difference
@@ -155,16 +172,16 @@ public class Fraction {
 	public Fraction subtract(Fraction b) {
 		return this.add(b.negate());
 	}
-	
+
 	/**
 	 * Multiplies this fraction by negative one to make positive fractions
 	 * turn negative and negative fractions turn positive
 	 * @return the number with an opposite sign
 	 */
 	public Fraction negate() {
-		return new Fraction(numerator.multiply(new BigInteger("-1")), denominator);
+		return new Fraction(numerator.negate(), denominator, reduced);
 	}
-	
+
 	/**
 	 * Multiplies this fraction with the other fraction and returns
 	 * their product
@@ -172,10 +189,11 @@ public class Fraction {
 	 * @return the product of both numbers
 	 */
 	public Fraction multiply(Fraction b) {
-		return new Fraction(this.getNumerator().multiply(b.getNumerator()),
-				this.getDenominator().multiply(b.getDenominator()));
+		if (numerator.signum() == 0 || b.numerator.signum() == 0)
+			return ZERO;
+		return new Fraction(numerator.multiply(b.numerator), denominator.multiply(b.denominator), false);
 	}
-	
+
 	/**
 	 * Returns this number as a string. It will be in the form
 	 * numerator/denominator unless the denominator is one in
@@ -184,10 +202,11 @@ public class Fraction {
 	 */
 	@Override
 	public String toString() {
+		Fraction r = reduce();
 		String resultText = "";
-		resultText += numerator;
-		if (!denominator.equals(BigInteger.ONE)) // does not display a denominator of 1
-			resultText += "/" + denominator;
+		resultText += r.numerator;
+		if (!r.denominator.equals(BigInteger.ONE)) // does not display a denominator of 1
+			resultText += "/" + r.denominator;
 		return resultText;
 	}
 }
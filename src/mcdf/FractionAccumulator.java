@@ -0,0 +1,66 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Sums fractions over a common denominator. Each term is scaled to the least common multiple
+ * of the denominators seen so far, which only needs a GCF of the denominators. The sum is
+ * simplified once when it is read instead of after every addition. The branches of one level
+ * share most of their denominator factors (the same total weight and extra effect chance),
+ * so the common denominator stays close to the size of a single term.
+ */
+public class FractionAccumulator implements NumericBackend.Accumulator<Fraction> {
+	/** Numerator of the running sum over the common denominator */
+	private BigInteger numerator = BigInteger.ZERO;
+
+	/** Least common multiple of the denominators of every term added so far */
+	private BigInteger denominator = BigInteger.ONE;
+
+	/**
+	 * Adds the fraction to the running sum
+	 * @param term fraction to add
+	 * @return this accumulator
+	 */
+	public FractionAccumulator add(Fraction term) {
+		BigInteger termNumerator = term.rawNumerator();
+		if(termNumerator.signum() == 0)
+			return this;
+
+		BigInteger termDenominator = term.rawDenominator();
+		if(termDenominator.equals(denominator)) {
+			numerator = numerator.add(termNumerator);
+			return this;
+		}
+
+		//Scale both sides to the least common multiple of the two denominators
+		BigInteger gcf = denominator.gcd(termDenominator);
+		if(CalculationMetrics.enabled())
+			CalculationMetrics.gcd();
+		BigInteger termScale = denominator.divide(gcf);
+		BigInteger sumScale = termDenominator.divide(gcf);
+		numerator = numerator.multiply(sumScale).add(termNumerator.multiply(termScale));
+		denominator = denominator.multiply(sumScale);
+		return this;
+	}
+
+	/**
+	 * Adds the fraction times an integer factor to the running sum. Only the numerator is
+	 * multiplied, so the factor does not grow the common denominator.
+	 * @param term fraction to add
+	 * @param factor integer the fraction is multiplied by
+	 * @return this accumulator
+	 */
+	@Override
+	public FractionAccumulator add(Fraction term, BigInteger factor) {
+		return add(new Fraction(term.rawNumerator().multiply(factor), term.rawDenominator()));
+	}
+
+	/**
+	 * Returns the simplified sum of every fraction added so far
+	 * @return the sum
+	 */
+	@Override
+	public Fraction sum() {
+		return new Fraction(numerator, denominator).reduce();
+	}
+}
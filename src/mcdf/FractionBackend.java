@@ -0,0 +1,39 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Exact backend using {@link Fraction}. Branch sums use a {@link FractionAccumulator} and
+ * every stored result is simplified.
+ */
+public class FractionBackend implements NumericBackend<Fraction> {
+	@Override
+	public Fraction fromRatio(BigInteger numerator, BigInteger denominator) {
+		return new Fraction(numerator, denominator);
+	}
+
+	@Override
+	public Fraction add(Fraction a, Fraction b) {
+		return a.add(b);
+	}
+
+	@Override
+	public Fraction multiply(Fraction a, Fraction b) {
+		return a.multiply(b);
+	}
+
+	@Override
+	public Fraction divide(Fraction a, BigInteger divisor) {
+		return a.multiply(new Fraction(BigInteger.ONE, divisor));
+	}
+
+	@Override
+	public FractionAccumulator newAccumulator() {
+		return new FractionAccumulator();
+	}
+
+	@Override
+	public Fraction normalize(Fraction value) {
+		return value.reduce();
+	}
+}
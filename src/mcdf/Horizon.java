@@ -0,0 +1,90 @@
+package mcdf;
+
+import java.util.Arrays;
+
+/**
+ * Probability of a vote type appearing at least once within the next N votes, given the
+ * probability q of it appearing in one vote.
+ * <p>
+ * These methods assume every vote is independent and generated with the same settings, so the
+ * vote is missed N times in a row with probability (1 - q)^N. That ignores anything that changes
+ * between votes, such as a vote changing the repeal or extra effect settings. Use
+ * {@link MarkovHorizon} to model those changes exactly.
+ */
+public class Horizon {
+	private Horizon() {
+	}
+
+	/**
+	 * Finds the exact probability of the vote appearing within the next votes, assuming
+	 * independent votes
+	 * @param single probability of the vote appearing in one vote
+	 * @param votes number of votes N, must not be negative
+	 * @return 1 - (1 - single)^N
+	 * @throws IllegalArgumentException if votes is negative
+	 */
+	public static Fraction independent(Fraction single, int votes) {
+		if(votes < 0)
+			throw new IllegalArgumentException("Number of votes must not be negative.");
+		Fraction miss = Fraction.ONE.subtract(single);
+		return Fraction.ONE.subtract(new Fraction(miss.getNumerator().pow(votes), miss.getDenominator().pow(votes)));
+	}
+
+	/**
+	 * Finds the exact probability of the vote appearing within each number of votes, assuming
+	 * independent votes. The numbers are sorted and each power of the miss probability is found
+	 * from the previous one, so the total work is the same as for the largest number.
+	 * @param single probability of the vote appearing in one vote
+	 * @param votes numbers of votes N, in any order, none negative
+	 * @return array where element i is 1 - (1 - single)^votes[i]
+	 * @throws IllegalArgumentException if a number of votes is negative
+	 */
+	public static Fraction[] independent(Fraction single, int[] votes) {
+		Integer[] order = sortedOrder(votes);
+		Fraction miss = Fraction.ONE.subtract(single).reduce();
+		Fraction[] results = new Fraction[votes.length];
+		Fraction missAll = Fraction.ONE;
+		int done = 0;
+		for(int i : order) {
+			int steps = votes[i] - done;
+			missAll = missAll.multiply(new Fraction(miss.getNumerator().pow(steps), miss.getDenominator().pow(steps))).reduce();
+			done = votes[i];
+			results[i] = Fraction.ONE.subtract(missAll).reduce();
+		}
+		return results;
+	}
+
+	/**
+	 * Finds the probability of the vote appearing within the next votes in double precision,
+	 * assuming independent votes. Uses -expm1(N log1p(-q)), which stays accurate for tiny q and
+	 * any N, including N far too large for the exact power.
+	 * @param single probability of the vote appearing in one vote
+	 * @param votes number of votes N, must not be negative
+	 * @return 1 - (1 - single)^N
+	 * @throws IllegalArgumentException if votes is negative
+	 */
+	public static double independent(double single, long votes) {
+		if(votes < 0)
+			throw new IllegalArgumentException("Number of votes must not be negative.");
+		if(single >= 1)
+			return votes == 0 ? 0 : 1;
+		return -Math.expm1(votes * Math.log1p(-single));
+	}
+
+	/**
+	 * Sorts the indices of the numbers of votes by their value
+	 * @param votes numbers of votes N
+	 * @return indices of votes in increasing order of votes[i]
+	 * @throws IllegalArgumentException if a number of votes is negative
+	 */
+	static Integer[] sortedOrder(int[] votes) {
+		Integer[] order = new Integer[votes.length];
+		for(int i = 0; i < votes.length; i++) {
+			if(votes[i] < 0)
+				throw new IllegalArgumentException("Number of votes must not be negative.");
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(votes[a], votes[b]));
+		return order;
+	}
+}
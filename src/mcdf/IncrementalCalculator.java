@@ -0,0 +1,315 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Calculator for trying out edits to the vote weights. The probability of a state of the
+ * recursion only depends on the weight of the vote of interest, the weights of the other votes
+ * that are left and the number of rounds left. The cache here is keyed by exactly that, counting
+ * the votes left of each distinct weight, instead of by the votes removed from one fixed table.
+ * After an edit every state that is still the same list of votes is read from the cache and only
+ * the states that differ are calculated.
+ * <p>
+ * When a vote moves from weight a to weight b, the states that already removed a vote of weight
+ * b are the same lists as before (with the moved vote as the removed one), so only the states
+ * that have not removed a vote of weight b are calculated again. Moving the vote of interest
+ * itself changes every state, and the first call for a new weight of interest or extra effect
+ * chance calculates every state. Results from different max counts share the cache.
+ * <p>
+ * Unlike {@link ProbabilityCalculator}, instances are mutable and must not be shared between
+ * threads without synchronization.
+ */
+public class IncrementalCalculator {
+	/** Denominator of the percentage values */
+	private static final BigInteger ONE_HUNDRED = BigInteger.valueOf(100);
+
+	/** Weight of every vote by vote ID */
+	private final HashMap<String, BigInteger> voteWeights = new HashMap<String, BigInteger>();
+
+	/** Every weight seen so far. Index is the weight index used by the counts and cache keys. */
+	private final ArrayList<BigInteger> weights = new ArrayList<BigInteger>();
+
+	/** Index of every weight in weights */
+	private final HashMap<BigInteger, Integer> weightIndices = new HashMap<BigInteger, Integer>();
+
+	/** Number of votes of each weight index. Grows when a new weight is seen. */
+	private int[] counts = new int[0];
+
+	/**
+	 * Cached state probabilities (before the repeal factor). The outer keys are the weight of
+	 * interest and the extra effect percentage.
+	 */
+	private final HashMap<CacheKey, HashMap<StateKey, Fraction>> cachedResults =
+			new HashMap<CacheKey, HashMap<StateKey, Fraction>>();
+
+	/** Number of states calculated by the last probability call */
+	private int lastCalculatedStates;
+
+	/**
+	 * Creates a calculator for the votes
+	 * @param voteWeights map of the vote ID as string keys and weights as values
+	 * @throws IllegalArgumentException if a weight is not positive
+	 */
+	public IncrementalCalculator(Map<String, BigInteger> voteWeights) {
+		for(Map.Entry<String, BigInteger> entry : voteWeights.entrySet())
+			addVote(entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * Changes the weight of a vote
+	 * @param voteId ID String of the vote
+	 * @param weight new weight of the vote
+	 * @throws IllegalArgumentException if the vote ID does not exist or the weight is not positive
+	 */
+	public void setWeight(String voteId, BigInteger weight) {
+		//Check everything before changing the counts so a failed call leaves the list unchanged
+		getWeight(voteId);
+		checkWeight(weight);
+		removeVote(voteId);
+		addVote(voteId, weight);
+	}
+
+	/**
+	 * Adds a vote to the list
+	 * @param voteId ID String of the new vote
+	 * @param weight weight of the new vote
+	 * @throws IllegalArgumentException if the vote ID already exists or the weight is not positive
+	 */
+	public void addVote(String voteId, BigInteger weight) {
+		checkWeight(weight);
+		if(voteWeights.containsKey(voteId))
+			throw new IllegalArgumentException("Vote ID " + voteId + " already exists.");
+		int index = indexOf(weight);
+		voteWeights.put(voteId, weight);
+		counts[index]++;
+	}
+
+	/**
+	 * Removes a vote from the list
+	 * @param voteId ID String of the vote
+	 * @throws IllegalArgumentException if the vote ID does not exist
+	 */
+	public void removeVote(String voteId) {
+		BigInteger weight = voteWeights.remove(voteId);
+		if(weight == null)
+			throw new IllegalArgumentException("Vote ID " + voteId + " does not exist.");
+		counts[weightIndices.get(weight)]--;
+	}
+
+	/**
+	 * Returns the current weight of a vote
+	 * @param voteId ID String of the vote
+	 * @return the weight of the vote
+	 * @throws IllegalArgumentException if the vote ID does not exist
+	 */
+	public BigInteger getWeight(String voteId) {
+		BigInteger weight = voteWeights.get(voteId);
+		if(weight == null)
+			throw new IllegalArgumentException("Vote ID " + voteId + " does not exist.");
+		return weight;
+	}
+
+	/**
+	 * Creates an immutable weight table of the current votes, for example to share the edited
+	 * list with a {@link ProbabilityCalculator}
+	 * @return weight table of the current votes
+	 */
+	public WeightTable toWeightTable() {
+		return new WeightTable(voteWeights);
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote considering combined
+	 * and repeal votes, with the current weights. Only the states that are not cached from
+	 * earlier calls are calculated.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist
+	 */
+	public Fraction probability(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		BigInteger eventWeight = getWeight(chosenVote);
+		HashMap<StateKey, Fraction> memo = cachedResults.computeIfAbsent(
+				new CacheKey(eventWeight, newVoteExtraEffectPercentage), k -> new HashMap<StateKey, Fraction>());
+
+		int[] remaining = counts.clone();
+		remaining[weightIndices.get(eventWeight)]--;
+		BigInteger totalWeight = BigInteger.ZERO;
+		for(BigInteger weight : voteWeights.values())
+			totalWeight = totalWeight.add(weight);
+
+		lastCalculatedStates = 0;
+		Fraction combined = probabilityGivenRemaining(eventWeight, new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED),
+				memo, remaining, totalWeight, newVoteExtraEffectMaxCount + 1);
+		return combined.multiply(Fraction.ONE.subtract(new Fraction(repealPercentage, ONE_HUNDRED)));
+	}
+
+	/**
+	 * Returns the number of states calculated by the last probability call. The rest were read
+	 * from the cache.
+	 * @return the number of states calculated
+	 */
+	public int getLastCalculatedStates() {
+		return lastCalculatedStates;
+	}
+
+	/**
+	 * Returns the number of states in the cache over every weight of interest and extra effect
+	 * chance
+	 * @return the number of cached states
+	 */
+	public int getCachedStates() {
+		int size = 0;
+		for(HashMap<StateKey, Fraction> memo : cachedResults.values())
+			size += memo.size();
+		return size;
+	}
+
+	/**
+	 * Removes every cached state. The results stay correct without this, but the cache keeps
+	 * states of lists that no longer exist.
+	 */
+	public void clearCache() {
+		cachedResults.clear();
+	}
+
+	/**
+	 * Recursive method to find the probability of the vote of interest appearing given the
+	 * other votes that are left
+	 * @param eventWeight weight of the vote of interest
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param memo cached results of the weight of interest and chance
+	 * @param remaining number of other votes left of each weight index. Modified during the call
+	 * but restored before returning.
+	 * @param totalWeight total weight of the votes left, including the vote of interest
+	 * @param roundsLeft depth to continue checking
+	 * @return the probability that the vote of interest will appear in the remaining rounds
+	 */
+	private Fraction probabilityGivenRemaining(BigInteger eventWeight, Fraction chance, HashMap<StateKey, Fraction> memo,
+			int[] remaining, BigInteger totalWeight, int roundsLeft) {
+		//Check for cached result
+		StateKey key = new StateKey(remaining, roundsLeft);
+		Fraction cacheResult = memo.get(key);
+		if(cacheResult != null)
+			return cacheResult;
+		lastCalculatedStates++;
+
+		//If there is still a chance for a combined vote, add the probabilities that the
+		//desired vote is chosen given the choice of a vote of every weight.
+		FractionAccumulator branchSum = new FractionAccumulator();
+		if(roundsLeft > 1) {
+			for(int i = 0; i < remaining.length; i++) {
+				if(remaining[i] == 0)
+					continue;
+
+				BigInteger weight = weights.get(i);
+				BigInteger branchFactor = weight.multiply(BigInteger.valueOf(remaining[i]));
+				remaining[i]--;
+				Fraction branchProbability = probabilityGivenRemaining(eventWeight, chance, memo, remaining,
+						totalWeight.subtract(weight), roundsLeft - 1);
+				remaining[i]++;
+
+				branchSum.add(branchProbability, branchFactor);
+			}
+		}
+		Fraction probability = branchSum.sum().multiply(chance).add(new Fraction(eventWeight, BigInteger.ONE))
+				.multiply(new Fraction(BigInteger.ONE, totalWeight)).reduce();
+		memo.put(key, probability);
+		return probability;
+	}
+
+	/**
+	 * Checks that a weight can be given to a vote
+	 * @param weight weight to check
+	 * @throws IllegalArgumentException if the weight is not positive
+	 */
+	private static void checkWeight(BigInteger weight) {
+		if(weight.signum() <= 0)
+			throw new IllegalArgumentException("Vote weight " + weight + " is not positive.");
+	}
+
+	/**
+	 * Finds the index of a weight, adding it if it has not been seen before
+	 * @param weight weight to find
+	 * @return index of the weight in weights and counts
+	 */
+	private int indexOf(BigInteger weight) {
+		Integer index = weightIndices.get(weight);
+		if(index != null)
+			return index;
+		weightIndices.put(weight, weights.size());
+		weights.add(weight);
+		counts = Arrays.copyOf(counts, weights.size());
+		return weights.size() - 1;
+	}
+
+	/**
+	 * Key of the cache of one weight of interest and extra effect chance
+	 */
+	private static final class CacheKey {
+		/** Weight of the vote of interest */
+		private final BigInteger eventWeight;
+
+		/** Extra effect percentage */
+		private final BigInteger extraEffectPercentage;
+
+		private CacheKey(BigInteger eventWeight, BigInteger extraEffectPercentage) {
+			this.eventWeight = eventWeight;
+			this.extraEffectPercentage = extraEffectPercentage;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof CacheKey))
+				return false;
+			CacheKey other = (CacheKey) o;
+			return eventWeight.equals(other.eventWeight) && extraEffectPercentage.equals(other.extraEffectPercentage);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(eventWeight, extraEffectPercentage);
+		}
+	}
+
+	/**
+	 * Key of one state: the number of other votes left of each weight index and the rounds left.
+	 * Trailing zero counts are dropped so keys made before and after a new weight was seen match.
+	 */
+	private static final class StateKey {
+		/** Number of other votes left of each weight index, without trailing zeros */
+		private final int[] remaining;
+
+		/** Depth left to check */
+		private final int roundsLeft;
+
+		private StateKey(int[] remaining, int roundsLeft) {
+			int length = remaining.length;
+			while(length > 0 && remaining[length - 1] == 0)
+				length--;
+			this.remaining = Arrays.copyOf(remaining, length);
+			this.roundsLeft = roundsLeft;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof StateKey))
+				return false;
+			StateKey other = (StateKey) o;
+			return roundsLeft == other.roundsLeft && Arrays.equals(remaining, other.remaining);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(remaining) + roundsLeft;
+		}
+	}
+}
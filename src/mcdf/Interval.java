@@ -0,0 +1,105 @@
+package mcdf;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Closed interval [lower, upper] that is guaranteed to contain an exact value. Produced by
+ * {@link IntervalBackend}, where every lower bound is rounded down and every upper bound is
+ * rounded up.
+ */
+public class Interval {
+	/** Lower bound of the interval */
+	private final BigDecimal lower;
+
+	/** Upper bound of the interval */
+	private final BigDecimal upper;
+
+	/**
+	 * Creates an interval from its bounds
+	 * @param lower lower bound
+	 * @param upper upper bound
+	 * @throws IllegalArgumentException if lower is greater than upper
+	 */
+	public Interval(BigDecimal lower, BigDecimal upper) {
+		if(lower.compareTo(upper) > 0)
+			throw new IllegalArgumentException("Interval lower bound " + lower + " is greater than upper bound " + upper + ".");
+		this.lower = lower;
+		this.upper = upper;
+	}
+
+	/**
+	 * Creates the smallest interval with bounds of the given precision that contains the fraction
+	 * @param value exact value
+	 * @param precision number of significant digits of the bounds
+	 * @return interval containing the fraction
+	 */
+	public static Interval of(Fraction value, int precision) {
+		BigDecimal numerator = new BigDecimal(value.getNumerator());
+		BigDecimal denominator = new BigDecimal(value.getDenominator());
+		return new Interval(numerator.divide(denominator, new MathContext(precision, RoundingMode.FLOOR)),
+				numerator.divide(denominator, new MathContext(precision, RoundingMode.CEILING)));
+	}
+
+	/**
+	 * Returns the lower bound
+	 * @return the lower bound
+	 */
+	public BigDecimal getLower() {
+		return lower;
+	}
+
+	/**
+	 * Returns the upper bound
+	 * @return the upper bound
+	 */
+	public BigDecimal getUpper() {
+		return upper;
+	}
+
+	/**
+	 * Returns the distance between the bounds
+	 * @return upper - lower
+	 */
+	public BigDecimal width() {
+		return upper.subtract(lower);
+	}
+
+	/**
+	 * Checks if the fraction is inside the interval
+	 * @param value exact value to check
+	 * @return true if lower <= value <= upper
+	 */
+	public boolean contains(Fraction value) {
+		BigInteger numerator = value.getNumerator();
+		BigInteger denominator = value.getDenominator();
+		return compare(lower, numerator, denominator) <= 0 && compare(upper, numerator, denominator) >= 0;
+	}
+
+	/**
+	 * Compares a decimal with a fraction without rounding
+	 * @param decimal decimal to compare
+	 * @param numerator numerator of the fraction
+	 * @param denominator positive denominator of the fraction
+	 * @return negative, zero or positive if decimal is less than, equal to or greater than the fraction
+	 */
+	private static int compare(BigDecimal decimal, BigInteger numerator, BigInteger denominator) {
+		//decimal = unscaled * 10^-scale, so compare unscaled * denominator with numerator * 10^scale
+		BigInteger unscaled = decimal.unscaledValue();
+		int scale = decimal.scale();
+		if(scale >= 0)
+			return unscaled.multiply(denominator).compareTo(numerator.multiply(BigInteger.TEN.pow(scale)));
+		return unscaled.multiply(BigInteger.TEN.pow(-scale)).multiply(denominator).compareTo(numerator);
+	}
+
+	/**
+	 * Returns the interval as a string in the form [lower, upper]
+	 * @return the interval in string format
+	 */
+	@Override
+	public String toString() {
+		return "[" + lower.toPlainString() + ", " + upper.toPlainString() + "]";
+	}
+}
@@ -0,0 +1,91 @@
+package mcdf;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Backend using interval arithmetic with directed rounding. Every lower bound is rounded
+ * toward negative infinity and every upper bound toward positive infinity, so the final
+ * interval is guaranteed to contain the exact result no matter how much rounding happened
+ * along the way. The width of the final interval is a proven error bound.
+ */
+public class IntervalBackend implements NumericBackend<Interval> {
+	/** Rounding used for lower bounds */
+	private final MathContext down;
+
+	/** Rounding used for upper bounds */
+	private final MathContext up;
+
+	/**
+	 * Creates a backend whose bounds have the given number of significant digits
+	 * @param precision number of significant digits of every bound
+	 */
+	public IntervalBackend(int precision) {
+		down = new MathContext(precision, RoundingMode.FLOOR);
+		up = new MathContext(precision, RoundingMode.CEILING);
+	}
+
+	@Override
+	public Interval fromRatio(BigInteger numerator, BigInteger denominator) {
+		BigDecimal n = new BigDecimal(numerator);
+		BigDecimal d = new BigDecimal(denominator);
+		return new Interval(n.divide(d, down), n.divide(d, up));
+	}
+
+	@Override
+	public Interval add(Interval a, Interval b) {
+		return new Interval(a.getLower().add(b.getLower(), down), a.getUpper().add(b.getUpper(), up));
+	}
+
+	@Override
+	public Interval multiply(Interval a, Interval b) {
+		//Probabilities are never negative, so the bounds multiply directly
+		if(a.getLower().signum() >= 0 && b.getLower().signum() >= 0)
+			return new Interval(a.getLower().multiply(b.getLower(), down), a.getUpper().multiply(b.getUpper(), up));
+
+		//Otherwise the bounds are the smallest and largest of the four corner products
+		BigDecimal[] lowerProducts = {a.getLower().multiply(b.getLower(), down), a.getLower().multiply(b.getUpper(), down),
+				a.getUpper().multiply(b.getLower(), down), a.getUpper().multiply(b.getUpper(), down)};
+		BigDecimal[] upperProducts = {a.getLower().multiply(b.getLower(), up), a.getLower().multiply(b.getUpper(), up),
+				a.getUpper().multiply(b.getLower(), up), a.getUpper().multiply(b.getUpper(), up)};
+		BigDecimal lower = lowerProducts[0];
+		BigDecimal upper = upperProducts[0];
+		for(int i = 1; i < 4; i++) {
+			lower = lower.min(lowerProducts[i]);
+			upper = upper.max(upperProducts[i]);
+		}
+		return new Interval(lower, upper);
+	}
+
+	@Override
+	public Interval divide(Interval a, BigInteger divisor) {
+		BigDecimal d = new BigDecimal(divisor);
+		if(divisor.signum() > 0)
+			return new Interval(a.getLower().divide(d, down), a.getUpper().divide(d, up));
+		return new Interval(a.getUpper().divide(d, down), a.getLower().divide(d, up));
+	}
+
+	@Override
+	public NumericBackend.Accumulator<Interval> newAccumulator() {
+		return new NumericBackend.Accumulator<Interval>() {
+			private BigDecimal lower = BigDecimal.ZERO;
+			private BigDecimal upper = BigDecimal.ZERO;
+
+			@Override
+			public NumericBackend.Accumulator<Interval> add(Interval term, BigInteger factor) {
+				//Branch factors are class weights times vote counts, which are positive
+				BigDecimal f = new BigDecimal(factor);
+				lower = lower.add(term.getLower().multiply(f, down), down);
+				upper = upper.add(term.getUpper().multiply(f, up), up);
+				return this;
+			}
+
+			@Override
+			public Interval sum() {
+				return new Interval(lower, upper);
+			}
+		};
+	}
+}
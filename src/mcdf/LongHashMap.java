@@ -0,0 +1,141 @@
+package mcdf;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive long keys using open addressing with linear probing. Lookups do
+ * not allocate, and each entry only costs one slot in a long array and one slot in an object
+ * array. Null values are not supported since a null value marks an empty slot.
+ * @param <V> type of the values
+ */
+public class LongHashMap<V> implements MemoTable<V> {
+	/** Largest fraction of the slots that can be used before the table grows */
+	private static final double MAX_LOAD = 0.6;
+
+	/** Keys of the entries. A slot is only used if the matching value is not null. */
+	private long[] keys;
+
+	/** Values of the entries. Null for empty slots. */
+	private Object[] values;
+
+	/** Number of entries in the map */
+	private int size;
+
+	/** Number of entries at which the table will grow */
+	private int resizeThreshold;
+
+	/**
+	 * Creates an empty map with a small starting capacity
+	 */
+	public LongHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map that can hold the expected number of entries without growing
+	 * @param expectedSize number of entries expected to be put in the map
+	 */
+	public LongHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Returns the value stored for the key
+	 * @param key key of the entry
+	 * @return the value for the key or null if the key is not in the map
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int mask = keys.length - 1;
+		for(int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+			if(keys[slot] == key)
+				return (V) values[slot];
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the value for the key, replacing any previous value
+	 * @param key key of the entry
+	 * @param value value of the entry
+	 * @throws IllegalArgumentException if value is null
+	 */
+	@Override
+	public void put(long key, V value) {
+		if(value == null)
+			throw new IllegalArgumentException("LongHashMap does not support null values.");
+
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while(values[slot] != null) {
+			if(keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if(size > resizeThreshold)
+			resize();
+	}
+
+	/**
+	 * Returns the number of entries in the map
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every entry from the map
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Doubles the capacity of the table and reinserts every entry
+	 */
+	private void resize() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(keys.length * 2);
+		int mask = keys.length - 1;
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldValues[i] == null)
+				continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while(values[slot] != null)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Creates empty key and value arrays
+	 * @param capacity number of slots, must be a power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		resizeThreshold = (int) (capacity * MAX_LOAD);
+	}
+
+	/**
+	 * Mixes the bits of the key so that packed keys which only differ in the high bits
+	 * still spread over the table
+	 * @param key key to hash
+	 * @return hash of the key
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,157 @@
+package mcdf;
+
+/**
+ * Exact probability of a vote type appearing within the next N votes when the settings can
+ * change between votes. The settings are modeled as a Markov chain of rule states. In rule state
+ * s the vote appears in the next vote with probability q_s, and if it does not appear the chain
+ * moves to rule state t with probability T[s][t]. The transitions are supplied by the caller,
+ * since they depend on how the players vote.
+ * <p>
+ * With D the diagonal matrix of the miss probabilities 1 - q_s, the probability of missing the
+ * vote N times in a row from the starting distribution pi is pi (D T)^(N - 1) D 1. A single rule
+ * state with T = [1] gives the same result as {@link Horizon#independent(Fraction, int)}.
+ */
+public class MarkovHorizon {
+	/** Probability of missing the vote in one vote of each rule state */
+	private final Fraction[] miss;
+
+	/** One step of the chain without the vote appearing: M[s][t] = (1 - q_s) T[s][t] */
+	private final Fraction[][] step;
+
+	/** Probability of starting in each rule state */
+	private final Fraction[] start;
+
+	/**
+	 * Creates the chain
+	 * @param single probability q_s of the vote appearing in one vote of each rule state
+	 * @param transitions T[s][t], probability of moving from rule state s to t after a vote that
+	 * did not show the vote. Every row must add up to one.
+	 * @param start probability of starting in each rule state, must add up to one
+	 * @throws IllegalArgumentException if the sizes do not match or a row does not add up to one
+	 */
+	public MarkovHorizon(Fraction[] single, Fraction[][] transitions, Fraction[] start) {
+		int states = single.length;
+		if(transitions.length != states || start.length != states)
+			throw new IllegalArgumentException("Every rule state needs a probability, a transition row and a start probability.");
+		checkDistribution(start, "Start probabilities");
+
+		miss = new Fraction[states];
+		step = new Fraction[states][states];
+		for(int s = 0; s < states; s++) {
+			if(transitions[s].length != states)
+				throw new IllegalArgumentException("Transition row " + s + " must have " + states + " entries.");
+			checkDistribution(transitions[s], "Transition row " + s);
+			miss[s] = Fraction.ONE.subtract(single[s]).reduce();
+			for(int t = 0; t < states; t++)
+				step[s][t] = miss[s].multiply(transitions[s][t]).reduce();
+		}
+		this.start = start.clone();
+	}
+
+	/**
+	 * Finds the exact probability of the vote appearing within the next votes. The matrix power
+	 * is found by repeated squaring, so large numbers of votes only need about log2(N) matrix
+	 * products.
+	 * @param votes number of votes N, must not be negative
+	 * @return probability of the vote appearing at least once in N votes
+	 * @throws IllegalArgumentException if votes is negative
+	 */
+	public Fraction within(int votes) {
+		if(votes < 0)
+			throw new IllegalArgumentException("Number of votes must not be negative.");
+		if(votes == 0)
+			return Fraction.ZERO;
+
+		Fraction[] distribution = start;
+		Fraction[][] power = step;
+		for(int e = votes - 1; e != 0; e >>>= 1) {
+			if((e & 1) != 0)
+				distribution = multiply(distribution, power);
+			if(e > 1)
+				power = multiply(power, power);
+		}
+		return Fraction.ONE.subtract(missLast(distribution));
+	}
+
+	/**
+	 * Finds the exact probability of the vote appearing within each number of votes. The chain
+	 * is stepped once per vote up to the largest number, so every result shares the same steps.
+	 * @param votes numbers of votes N, in any order, none negative
+	 * @return array where element i is the probability for votes[i]
+	 * @throws IllegalArgumentException if a number of votes is negative
+	 */
+	public Fraction[] within(int[] votes) {
+		Integer[] order = Horizon.sortedOrder(votes);
+		Fraction[] results = new Fraction[votes.length];
+		Fraction[] distribution = start;
+		int done = 1;
+		for(int i : order) {
+			if(votes[i] == 0) {
+				results[i] = Fraction.ZERO;
+				continue;
+			}
+			while(done < votes[i]) {
+				distribution = multiply(distribution, step);
+				done++;
+			}
+			results[i] = Fraction.ONE.subtract(missLast(distribution));
+		}
+		return results;
+	}
+
+	/**
+	 * Finds the probability of missing the vote in the last vote from the current distribution
+	 * @param distribution probability of being in each rule state with the vote not seen yet
+	 * @return sum of distribution[s] (1 - q_s)
+	 */
+	private Fraction missLast(Fraction[] distribution) {
+		FractionAccumulator sum = new FractionAccumulator();
+		for(int s = 0; s < distribution.length; s++)
+			sum.add(distribution[s].multiply(miss[s]));
+		return sum.sum();
+	}
+
+	/**
+	 * Multiplies a row vector by a matrix
+	 * @param vector row vector
+	 * @param matrix square matrix
+	 * @return vector * matrix
+	 */
+	private static Fraction[] multiply(Fraction[] vector, Fraction[][] matrix) {
+		Fraction[] product = new Fraction[vector.length];
+		for(int t = 0; t < vector.length; t++) {
+			FractionAccumulator sum = new FractionAccumulator();
+			for(int s = 0; s < vector.length; s++)
+				sum.add(vector[s].multiply(matrix[s][t]));
+			product[t] = sum.sum();
+		}
+		return product;
+	}
+
+	/**
+	 * Multiplies two square matrices
+	 * @param a left matrix
+	 * @param b right matrix
+	 * @return a * b
+	 */
+	private static Fraction[][] multiply(Fraction[][] a, Fraction[][] b) {
+		Fraction[][] product = new Fraction[a.length][];
+		for(int s = 0; s < a.length; s++)
+			product[s] = multiply(a[s], b);
+		return product;
+	}
+
+	/**
+	 * Checks that probabilities add up to one
+	 * @param probabilities probabilities to check
+	 * @param name description used in the exception message
+	 * @throws IllegalArgumentException if the probabilities do not add up to one
+	 */
+	private static void checkDistribution(Fraction[] probabilities, String name) {
+		FractionAccumulator sum = new FractionAccumulator();
+		for(Fraction probability : probabilities)
+			sum.add(probability);
+		if(sum.sum().subtract(Fraction.ONE).getNumerator().signum() != 0)
+			throw new IllegalArgumentException(name + " must add up to 1.");
+	}
+}
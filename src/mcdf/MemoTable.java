@@ -0,0 +1,35 @@
+package mcdf;
+
+/**
+ * Table of cached results keyed by a packed long, such as the removed counts of every
+ * weight class. Lets the recursion use a plain map on one thread or a shared map across
+ * threads without changing the recursion itself.
+ * @param <V> type of the cached results
+ */
+public interface MemoTable<V> {
+	/**
+	 * Returns the cached result for the key
+	 * @param key packed key of the result
+	 * @return the cached result or null if there is none
+	 */
+	V get(long key);
+
+	/**
+	 * Stores the result for the key
+	 * @param key packed key of the result
+	 * @param value result to cache, must not be null
+	 */
+	void put(long key, V value);
+
+	/**
+	 * Stores the result for the key along with the depth of its state, the number of votes
+	 * removed to reach it. Tables that evict results can use the depth to keep the results
+	 * that are most expensive to recalculate. Ignores the depth by default.
+	 * @param key packed key of the result
+	 * @param value result to cache, must not be null
+	 * @param depth number of votes removed in the state of the result
+	 */
+	default void put(long key, V value, int depth) {
+		put(key, value);
+	}
+}
@@ -0,0 +1,205 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic modulo one prime below 2^62 using only primitive long math. Numbers
+ * are kept in Montgomery form (x * 2^64 mod p) so a multiplication is two 64 bit products and
+ * no division. The results of several primes are combined by {@link ModularEngine} to rebuild
+ * the exact fraction.
+ */
+public class ModularBackend {
+	/** The prime modulus, odd and below 2^62 */
+	private final long prime;
+
+	/** -prime^-1 mod 2^64, used to reduce a product */
+	private final long negativeInverse;
+
+	/** 2^128 mod prime, used to move a number into Montgomery form */
+	private final long rSquared;
+
+	/** Montgomery form of one */
+	private final long one;
+
+	/** Prime as a BigInteger, used to reduce large integers */
+	private final BigInteger bigPrime;
+
+	/**
+	 * Creates a backend for the prime
+	 * @param prime odd prime below 2^62
+	 * @throws IllegalArgumentException if prime is even or not below 2^62
+	 */
+	public ModularBackend(long prime) {
+		if(prime <= 2 || (prime & 1) == 0 || prime >= (1L << 62))
+			throw new IllegalArgumentException("Modulus " + prime + " must be an odd number below 2^62.");
+		this.prime = prime;
+		bigPrime = BigInteger.valueOf(prime);
+
+		//Newton's iteration doubles the correct low bits of the inverse each step, 3 -> 6 -> ... -> 96
+		long inverse = prime;
+		for(int i = 0; i < 5; i++)
+			inverse *= 2 - prime * inverse;
+		negativeInverse = -inverse;
+
+		rSquared = BigInteger.ONE.shiftLeft(128).mod(bigPrime).longValue();
+		one = BigInteger.ONE.shiftLeft(64).mod(bigPrime).longValue();
+	}
+
+	/**
+	 * Returns the prime modulus
+	 * @return the prime
+	 */
+	public long getPrime() {
+		return prime;
+	}
+
+	/**
+	 * Moves a ratio of integers into Montgomery form
+	 * @param numerator numerator of the ratio
+	 * @param denominator denominator of the ratio
+	 * @return numerator * denominator^-1 * 2^64 mod prime
+	 * @throws ArithmeticException if the prime divides the denominator
+	 */
+	long fromRatio(BigInteger numerator, BigInteger denominator) {
+		return montgomeryMultiply(fromInteger(numerator), inverseAll(new long[] {fromInteger(denominator)})[0]);
+	}
+
+	/**
+	 * Moves an integer into Montgomery form
+	 * @param value integer to convert
+	 * @return value * 2^64 mod prime
+	 */
+	long fromInteger(BigInteger value) {
+		return toMontgomery(residue(value));
+	}
+
+	/**
+	 * Inverts every number of the array with one exponentiation. The running products are
+	 * inverted once and each inverse is peeled off by multiplying with the other numbers.
+	 * @param values numbers in Montgomery form
+	 * @return array where element i is values[i]^-1 in Montgomery form
+	 * @throws ArithmeticException if the prime divides one of the numbers
+	 */
+	long[] inverseAll(long[] values) {
+		long[] prefix = new long[values.length];
+		long product = one;
+		for(int i = 0; i < values.length; i++) {
+			prefix[i] = product;
+			product = montgomeryMultiply(product, values[i]);
+		}
+		if(product == 0)
+			throw new ArithmeticException("A divisor is a multiple of the prime " + prime + ".");
+
+		long[] inverses = new long[values.length];
+		long inverseProduct = power(product, prime - 2);
+		for(int i = values.length - 1; i >= 0; i--) {
+			inverses[i] = montgomeryMultiply(inverseProduct, prefix[i]);
+			inverseProduct = montgomeryMultiply(inverseProduct, values[i]);
+		}
+		return inverses;
+	}
+
+	/**
+	 * Converts a number in Montgomery form back to its residue
+	 * @param value number in Montgomery form
+	 * @return the residue in [0, prime)
+	 */
+	public long toResidue(long value) {
+		return reduce(0L, value);
+	}
+
+	/**
+	 * Raises a number in Montgomery form to a power by repeated squaring
+	 * @param base number in Montgomery form
+	 * @param exponent power, not negative
+	 * @return base^exponent in Montgomery form
+	 */
+	private long power(long base, long exponent) {
+		long result = one;
+		for(long e = exponent; e != 0; e >>>= 1) {
+			if((e & 1) != 0)
+				result = montgomeryMultiply(result, base);
+			base = montgomeryMultiply(base, base);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the residue of an integer modulo the prime
+	 * @param value integer to reduce
+	 * @return value mod prime in [0, prime)
+	 */
+	private long residue(BigInteger value) {
+		if(value.bitLength() < Long.SIZE)
+			return Math.floorMod(value.longValue(), prime);
+		return value.mod(bigPrime).longValue();
+	}
+
+	/**
+	 * Moves a residue into Montgomery form
+	 * @param value residue in [0, prime)
+	 * @return value * 2^64 mod prime
+	 */
+	private long toMontgomery(long value) {
+		return montgomeryMultiply(value, rSquared);
+	}
+
+	/**
+	 * Adds two numbers modulo the prime. Both are below 2^62 so the sum cannot overflow.
+	 * @param a first addend in [0, prime)
+	 * @param b second addend in [0, prime)
+	 * @return a + b mod prime
+	 */
+	long addMod(long a, long b) {
+		long sum = a + b;
+		return sum >= prime ? sum - prime : sum;
+	}
+
+	/**
+	 * Subtracts two numbers modulo the prime
+	 * @param a minuend in [0, prime)
+	 * @param b subtrahend in [0, prime)
+	 * @return a - b mod prime
+	 */
+	long subtractMod(long a, long b) {
+		long difference = a - b;
+		return difference < 0 ? difference + prime : difference;
+	}
+
+	/**
+	 * Multiplies two numbers in Montgomery form. Both are below 2^62, so they are not negative
+	 * as signed longs and the signed high product is the unsigned one.
+	 * @param a first factor in [0, prime)
+	 * @param b second factor in [0, prime)
+	 * @return a * b * 2^-64 mod prime
+	 */
+	long montgomeryMultiply(long a, long b) {
+		return reduce(Math.multiplyHigh(a, b), a * b);
+	}
+
+	/**
+	 * Montgomery reduction of the 128 bit number high * 2^64 + low, which must be below
+	 * prime * 2^64
+	 * @param high upper 64 bits
+	 * @param low lower 64 bits
+	 * @return (high * 2^64 + low) * 2^-64 mod prime
+	 */
+	private long reduce(long high, long low) {
+		//m * prime cancels the low bits, so the low half of the sum is zero with a carry
+		//unless low was already zero
+		long m = low * negativeInverse;
+		long result = high + unsignedMultiplyHigh(m, prime) + (low != 0 ? 1 : 0);
+		return result >= prime ? result - prime : result;
+	}
+
+	/**
+	 * Upper 64 bits of the unsigned product of a and a non-negative b
+	 * @param a factor read as unsigned
+	 * @param b factor that is not negative
+	 * @return the upper 64 bits of a * b
+	 */
+	private static long unsignedMultiplyHigh(long a, long b) {
+		//A negative signed a is a - 2^64 unsigned, which lowered the signed product by b * 2^64
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b);
+	}
+}
@@ -0,0 +1,350 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Exact engine that runs the weight class table modulo several primes instead of with
+ * fractions. Every prime fills its own long[] table with the Montgomery arithmetic of a
+ * {@link ModularBackend}, so the table only does primitive long math no matter how large the
+ * exact numerator and denominator get. The layout of the states is found once per engine. The
+ * class weights, branch factors and chance are converted once per prime, the total weight of a
+ * state is its parent's minus one class weight, and every total weight is inverted together
+ * with a single exponentiation. The primes run in parallel and their residues are combined with
+ * the Chinese remainder theorem, then the fraction is rebuilt with rational reconstruction.
+ * <p>
+ * The size of the result is not known in advance, so primes are added until the rebuilt
+ * fraction also matches {@link #CHECK_PRIMES} primes that were not used to rebuild it. A prime
+ * that divides one of the divisors of the table is skipped.
+ */
+public class ModularEngine {
+	/** Number of primes used in the first attempt */
+	private static final int INITIAL_PRIMES = 8;
+
+	/** Number of extra primes the rebuilt fraction must match */
+	private static final int CHECK_PRIMES = 2;
+
+	/** Primes below 2^62 in descending order, extended when more are needed */
+	private static final ArrayList<Long> PRIMES = new ArrayList<Long>();
+
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Weight class of the vote of interest */
+	private final int eventClass;
+
+	/** Total possible length of a combined vote (new_vote_extra_effect_max_count + 1) */
+	private final int rounds;
+
+	/**
+	 * Number of other votes in each weight class. Equal to the table counts except the event
+	 * class, which does not include the vote of interest.
+	 */
+	private final int[] otherCounts;
+
+	/** Table index step of each weight class, the same mixed radix layout as {@link WeightClassEngine} */
+	private final int[] strides;
+
+	/** Number of entries in the table, including states that can never be reached */
+	private final int tableSize;
+
+	/** Table index of every reachable state, ordered by the number of votes removed */
+	private final int[] states;
+
+	/** Position in states of the first state with rounds - 1 votes removed, which has no branches */
+	private final int lastLevelStart;
+
+	/** Weight class whose removal leads from the parent state to each state in states. Unused for the first state. */
+	private final int[] parentClasses;
+
+	/** Number of votes removed from each class of each state in states, stored as position * classes + class */
+	private final int[] removedCounts;
+
+	/**
+	 * Creates an engine for one vote of interest
+	 * @param table weight classes of the full vote list
+	 * @param eventClass weight class of the vote that the user wants to find the probability of
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 */
+	public ModularEngine(WeightTable table, int eventClass, int rounds) {
+		this.table = table;
+		this.eventClass = eventClass;
+		this.rounds = rounds;
+
+		int classes = table.getClassCount();
+		otherCounts = new int[classes];
+		for(int i = 0; i < classes; i++)
+			otherCounts[i] = table.getVoteCount(i);
+		otherCounts[eventClass]--;
+
+		strides = new int[classes];
+		int size = 1;
+		for(int i = 0; i < classes; i++) {
+			strides[i] = size;
+			size *= Math.min(otherCounts[i], rounds - 1) + 1;
+		}
+		tableSize = size;
+
+		//Sort the reachable indices by level so parents come before the states they lead to
+		ArrayList<ArrayList<int[]>> levels = new ArrayList<ArrayList<int[]>>();
+		for(int level = 0; level < rounds; level++)
+			levels.add(new ArrayList<int[]>());
+		for(int idx = 0; idx < size; idx++) {
+			int[] counts = new int[classes + 1];
+			int level = 0;
+			int rest = idx;
+			for(int i = classes - 1; i >= 0; i--) {
+				counts[i] = rest / strides[i];
+				rest %= strides[i];
+				level += counts[i];
+			}
+			counts[classes] = idx;
+			if(level < rounds)
+				levels.get(level).add(counts);
+		}
+
+		int reachable = 0;
+		for(ArrayList<int[]> level : levels)
+			reachable += level.size();
+		states = new int[reachable];
+		parentClasses = new int[reachable];
+		removedCounts = new int[reachable * classes];
+		int position = 0;
+		int lastStart = 0;
+		for(int level = 0; level < rounds; level++) {
+			if(level == rounds - 1)
+				lastStart = position;
+			for(int[] counts : levels.get(level)) {
+				states[position] = counts[classes];
+				System.arraycopy(counts, 0, removedCounts, position * classes, classes);
+				for(int i = 0; i < classes; i++) {
+					if(counts[i] > 0) {
+						parentClasses[position] = i;
+						break;
+					}
+				}
+				position++;
+			}
+		}
+		lastLevelStart = lastStart;
+	}
+
+	/**
+	 * Finds the same probability as {@link WeightClassEngine#probabilityBottomUp()}
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param pool pool that runs the primes in parallel
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probability(Fraction chance, ForkJoinPool pool) {
+		ArrayList<Long> primes = new ArrayList<Long>();
+		ArrayList<Long> residues = new ArrayList<Long>();
+		int nextPrime = 0;
+		int wanted = INITIAL_PRIMES + CHECK_PRIMES;
+
+		while(true) {
+			//Run the missing primes in parallel, skipping primes that cannot invert a divisor
+			ArrayList<Long> batch = new ArrayList<Long>();
+			while(primes.size() + batch.size() < wanted)
+				batch.add(prime(nextPrime++));
+			List<Future<Long>> results = pool.invokeAll(residueTasks(batch, chance));
+			for(int i = 0; i < batch.size(); i++) {
+				Long residue = residueOrNull(results.get(i));
+				if(residue != null) {
+					primes.add(batch.get(i));
+					residues.add(residue);
+				}
+			}
+			if(primes.size() < wanted)
+				continue;
+
+			Fraction result = reconstruct(primes, residues);
+			if(result != null)
+				return result;
+
+			//Not enough primes for the size of the fraction, double them
+			wanted = 2 * (primes.size() - CHECK_PRIMES) + CHECK_PRIMES;
+		}
+	}
+
+	/**
+	 * Creates a task for each prime that runs the table modulo the prime
+	 * @param batch primes to run
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return one task per prime returning the residue of the probability
+	 */
+	private List<Callable<Long>> residueTasks(List<Long> batch, Fraction chance) {
+		ArrayList<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+		for(long prime : batch) {
+			tasks.add(() -> residue(new ModularBackend(prime), chance));
+		}
+		return tasks;
+	}
+
+	/**
+	 * Fills the table of one prime from the states with rounds - 1 votes removed up to the
+	 * state with nothing removed. Follows {@link WeightClassEngine#probabilityBottomUp()} with
+	 * every number as a long in Montgomery form.
+	 * @param backend Montgomery arithmetic of the prime
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return the residue of the probability modulo the prime
+	 * @throws ArithmeticException if the prime divides one of the total weights or the chance denominator
+	 */
+	private long residue(ModularBackend backend, Fraction chance) {
+		int classes = otherCounts.length;
+
+		//Convert everything that does not depend on the state once
+		long chanceValue = backend.fromRatio(chance.getNumerator(), chance.getDenominator());
+		long[] weights = new long[classes];
+		long[][] branchFactors = new long[classes][];
+		for(int i = 0; i < classes; i++) {
+			weights[i] = backend.fromInteger(table.getClassWeight(i));
+			branchFactors[i] = new long[otherCounts[i] + 1];
+			for(int remaining = 1; remaining <= otherCounts[i]; remaining++)
+				branchFactors[i][remaining] = backend.fromInteger(table.getClassWeight(i).multiply(BigInteger.valueOf(remaining)));
+		}
+		long eventWeight = weights[eventClass];
+
+		//Each total weight is the parent's total minus the class weight removed to reach it
+		long[] totalsByIndex = new long[tableSize];
+		long[] totals = new long[states.length];
+		for(int position = 0; position < states.length; position++) {
+			int idx = states[position];
+			if(position == 0) {
+				totals[position] = backend.fromInteger(table.getTotalWeight());
+			} else {
+				int parentClass = parentClasses[position];
+				totals[position] = backend.subtractMod(totalsByIndex[idx - strides[parentClass]], weights[parentClass]);
+			}
+			totalsByIndex[idx] = totals[position];
+		}
+		long[] inverseTotals = backend.inverseAll(totals);
+
+		//Deeper states come later in states, so every branch is filled before it is read
+		long[] results = new long[tableSize];
+		for(int position = states.length - 1; position >= 0; position--) {
+			int idx = states[position];
+			long branchSum = 0;
+			if(position < lastLevelStart) {
+				int base = position * classes;
+				for(int i = 0; i < classes; i++) {
+					int remaining = otherCounts[i] - removedCounts[base + i];
+					if(remaining == 0)
+						continue;
+					branchSum = backend.addMod(branchSum, backend.montgomeryMultiply(results[idx + strides[i]], branchFactors[i][remaining]));
+				}
+			}
+			long numerator = backend.addMod(eventWeight, backend.montgomeryMultiply(branchSum, chanceValue));
+			results[idx] = backend.montgomeryMultiply(numerator, inverseTotals[position]);
+		}
+		return backend.toResidue(results[0]);
+	}
+
+	/**
+	 * Returns the residue calculated by a finished task
+	 * @param result finished task
+	 * @return the residue, or null if the prime divided one of the divisors
+	 */
+	private static Long residueOrNull(Future<Long> result) {
+		try {
+			return result.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof ArithmeticException)
+				return null;
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a prime.", e);
+		}
+	}
+
+	/**
+	 * Rebuilds the fraction from every residue except the last {@link #CHECK_PRIMES}, then
+	 * checks it against those
+	 * @param primes primes the residues were found with
+	 * @param residues residues of the fraction
+	 * @return the fraction, or null if there are not enough primes to rebuild it
+	 */
+	private static Fraction reconstruct(List<Long> primes, List<Long> residues) {
+		int used = primes.size() - CHECK_PRIMES;
+
+		//Chinese remainder theorem, adding one prime at a time
+		BigInteger modulus = BigInteger.ONE;
+		BigInteger value = BigInteger.ZERO;
+		for(int i = 0; i < used; i++) {
+			BigInteger prime = BigInteger.valueOf(primes.get(i));
+			BigInteger step = BigInteger.valueOf(residues.get(i)).subtract(value.mod(prime))
+					.multiply(modulus.modInverse(prime)).mod(prime);
+			value = value.add(modulus.multiply(step));
+			modulus = modulus.multiply(prime);
+		}
+
+		Fraction result = rationalReconstruction(value, modulus);
+		if(result == null)
+			return null;
+
+		for(int i = used; i < primes.size(); i++) {
+			BigInteger prime = BigInteger.valueOf(primes.get(i));
+			BigInteger numerator = result.getNumerator().mod(prime);
+			BigInteger denominator = result.getDenominator().mod(prime);
+			if(denominator.signum() == 0 || !numerator.equals(denominator.multiply(BigInteger.valueOf(residues.get(i))).mod(prime)))
+				return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the fraction n/d with |n| and d at most sqrt(modulus / 2) such that
+	 * n = value * d mod modulus, using the extended Euclidean algorithm stopped halfway. That
+	 * fraction is unique if it exists.
+	 * @param value residue of the fraction
+	 * @param modulus product of the primes
+	 * @return the fraction, or null if no fraction is small enough
+	 */
+	private static Fraction rationalReconstruction(BigInteger value, BigInteger modulus) {
+		BigInteger bound = modulus.shiftRight(1).sqrt();
+		BigInteger r0 = modulus;
+		BigInteger r1 = value;
+		BigInteger t0 = BigInteger.ZERO;
+		BigInteger t1 = BigInteger.ONE;
+		while(r1.compareTo(bound) > 0) {
+			BigInteger[] qr = r0.divideAndRemainder(r1);
+			r0 = r1;
+			r1 = qr[1];
+			BigInteger t = t0.subtract(qr[0].multiply(t1));
+			t0 = t1;
+			t1 = t;
+		}
+		if(t1.signum() == 0 || t1.abs().compareTo(bound) > 0)
+			return null;
+		if(!r1.gcd(t1).equals(BigInteger.ONE))
+			return null;
+		return t1.signum() < 0 ? new Fraction(r1.negate(), t1.negate()) : new Fraction(r1, t1);
+	}
+
+	/**
+	 * Returns the prime at the index of the descending list of primes below 2^62
+	 * @param index index of the prime
+	 * @return the prime
+	 */
+	private static long prime(int index) {
+		synchronized(PRIMES) {
+			long candidate = PRIMES.isEmpty() ? (1L << 62) - 1 : PRIMES.get(PRIMES.size() - 1) - 2;
+			while(PRIMES.size() <= index) {
+				if(BigInteger.valueOf(candidate).isProbablePrime(64))
+					PRIMES.add(candidate);
+				candidate -= 2;
+			}
+			return PRIMES.get(index);
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates the probability of a vote type appearing in the next vote by simulating votes the
+ * same way the game generates them: a repeal vote with the repeal chance, otherwise a weighted
+ * draw followed by extra draws with the extra effect chance up to the max count, never
+ * repeating a vote. Useful for hypothetical weight lists and max counts too large for the
+ * exact engines.
+ * <p>
+ * Votes are drawn with Walker's alias method in constant time. Duplicates are redrawn, which
+ * gives the same distribution as removing the drawn votes from the list. The sampling loop
+ * does not allocate. Samples are split over one {@link SplittableRandom} per core.
+ */
+public class MonteCarloEstimator {
+	/** Normal quantile of the 95% confidence interval */
+	private static final double Z_95 = 1.959963984540054;
+
+	/** IDs of the votes, index matches the alias table */
+	private final String[] voteIds;
+
+	/** Probability of keeping the drawn column of the alias table */
+	private final double[] keepProbability;
+
+	/** Vote used when the drawn column is not kept */
+	private final int[] alias;
+
+	/**
+	 * Builds the alias table of the vote weights
+	 * @param voteWeights map of the vote ID as string keys and weights as values
+	 * @throws IllegalArgumentException if voteWeights is empty or contains a weight that is not positive
+	 */
+	public MonteCarloEstimator(Map<String, BigInteger> voteWeights) {
+		if(voteWeights.isEmpty())
+			throw new IllegalArgumentException("Weight table must contain at least one vote.");
+
+		int n = voteWeights.size();
+		voteIds = new String[n];
+		double[] scaled = new double[n];
+		double total = 0;
+		int idx = 0;
+		for(Map.Entry<String, BigInteger> entry : voteWeights.entrySet()) {
+			if(entry.getValue().signum() <= 0)
+				throw new IllegalArgumentException("Vote weight " + entry.getValue() + " is not positive.");
+			voteIds[idx] = entry.getKey();
+			scaled[idx] = entry.getValue().doubleValue();
+			total += scaled[idx];
+			idx++;
+		}
+
+		//Vose's method: pair each column under the average with one over it
+		keepProbability = new double[n];
+		alias = new int[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for(int i = 0; i < n; i++) {
+			scaled[i] = scaled[i] * n / total;
+			if(scaled[i] < 1)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+		while(smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			keepProbability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if(scaled[more] < 1)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+		//Columns left over are full up to rounding error
+		while(largeCount > 0)
+			keepProbability[large[--largeCount]] = 1;
+		while(smallCount > 0)
+			keepProbability[small[--smallCount]] = 1;
+	}
+
+	/**
+	 * Simulates votes and estimates the probability that the vote appears in the next vote
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @param samples number of votes to simulate
+	 * @param seed seed of the random numbers, the same seed and core count repeat a run
+	 * @param pool pool that runs the samples, split into one task per thread of the pool
+	 * @return estimate with its 95% confidence interval
+	 * @throws IllegalArgumentException if the vote ID does not exist or samples is not positive
+	 */
+	public Estimate estimate(String chosenVote, int repealPercentage, int newVoteExtraEffectPercentage,
+			int newVoteExtraEffectMaxCount, long samples, long seed, ForkJoinPool pool) {
+		if(samples <= 0)
+			throw new IllegalArgumentException("Number of samples must be positive.");
+		int target = indexOf(chosenVote);
+		double repealChance = repealPercentage / 100.0;
+		double extraChance = newVoteExtraEffectPercentage / 100.0;
+		int length = Math.min(newVoteExtraEffectMaxCount + 1, voteIds.length);
+
+		//Every task gets its own random number generator split from the seed
+		int tasks = (int) Math.min(samples, pool.getParallelism());
+		SplittableRandom root = new SplittableRandom(seed);
+		ArrayList<Callable<Long>> work = new ArrayList<Callable<Long>>();
+		for(int i = 0; i < tasks; i++) {
+			SplittableRandom random = root.split();
+			long taskSamples = samples / tasks + (i < samples % tasks ? 1 : 0);
+			work.add(() -> countHits(random, target, repealChance, extraChance, length, taskSamples));
+		}
+
+		long start = System.nanoTime();
+		long hits = 0;
+		for(Future<Long> result : pool.invokeAll(work))
+			hits += join(result);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return new Estimate(hits, samples, seconds);
+	}
+
+	/**
+	 * Simulates votes on one thread and counts the ones containing the target
+	 * @param random random numbers of this thread
+	 * @param target index of the vote of interest
+	 * @param repealChance probability that a vote is a repeal vote
+	 * @param extraChance probability that an extra vote is added at each step
+	 * @param length largest number of votes in a combined vote
+	 * @param samples number of votes to simulate
+	 * @return number of simulated votes that contained the target
+	 */
+	private long countHits(SplittableRandom random, int target, double repealChance, double extraChance, int length,
+			long samples) {
+		//drawnIn[i] == sample means vote i was already drawn in the current sample
+		long[] drawnIn = new long[voteIds.length];
+		Arrays.fill(drawnIn, -1);
+		long hits = 0;
+		for(long sample = 0; sample < samples; sample++) {
+			if(random.nextDouble() < repealChance)
+				continue;
+
+			//Draw the base vote, then extra votes while the extra effect roll succeeds
+			int drawn = 0;
+			while(true) {
+				int vote = draw(random);
+				if(drawnIn[vote] == sample)
+					continue;
+				if(vote == target) {
+					hits++;
+					break;
+				}
+				drawnIn[vote] = sample;
+				drawn++;
+				if(drawn == length || random.nextDouble() >= extraChance)
+					break;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Draws one vote by weight with the alias table
+	 * @param random random numbers of this thread
+	 * @return index of the drawn vote
+	 */
+	private int draw(SplittableRandom random) {
+		int column = random.nextInt(keepProbability.length);
+		return random.nextDouble() < keepProbability[column] ? column : alias[column];
+	}
+
+	/**
+	 * Finds the index of a vote in the alias table
+	 * @param voteId ID String of the vote
+	 * @return index of the vote
+	 * @throws IllegalArgumentException if the vote ID does not exist
+	 */
+	private int indexOf(String voteId) {
+		for(int i = 0; i < voteIds.length; i++) {
+			if(voteIds[i].equals(voteId))
+				return i;
+		}
+		throw new IllegalArgumentException("Vote ID " + voteId + " does not exist.");
+	}
+
+	/**
+	 * Returns the hit count of a finished task
+	 * @param result finished task
+	 * @return the number of hits
+	 */
+	private static long join(Future<Long> result) {
+		try {
+			return result.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for samples.", e);
+		}
+	}
+
+	/**
+	 * Result of a simulation
+	 */
+	public static class Estimate {
+		/** Number of simulated votes that contained the vote of interest */
+		private final long hits;
+
+		/** Number of simulated votes */
+		private final long samples;
+
+		/** Wall clock time of the simulation in seconds */
+		private final double seconds;
+
+		private Estimate(long hits, long samples, double seconds) {
+			this.hits = hits;
+			this.samples = samples;
+			this.seconds = seconds;
+		}
+
+		/**
+		 * Returns the fraction of simulated votes that contained the vote of interest
+		 * @return the estimated probability
+		 */
+		public double getEstimate() {
+			return (double) hits / samples;
+		}
+
+		/**
+		 * Returns the lower end of the 95% Wilson score interval, which stays inside [0, 1]
+		 * even for probabilities close to zero
+		 * @return lower bound of the confidence interval
+		 */
+		public double getLower() {
+			return wilson(-1);
+		}
+
+		/**
+		 * Returns the upper end of the 95% Wilson score interval
+		 * @return upper bound of the confidence interval
+		 */
+		public double getUpper() {
+			return wilson(1);
+		}
+
+		/**
+		 * Returns the number of simulated votes
+		 * @return the number of samples
+		 */
+		public long getSamples() {
+			return samples;
+		}
+
+		/**
+		 * Returns the simulation speed
+		 * @return samples simulated per second of wall clock time
+		 */
+		public double getSamplesPerSecond() {
+			return samples / seconds;
+		}
+
+		/**
+		 * Finds one end of the 95% Wilson score interval
+		 * @param side -1 for the lower end or 1 for the upper end
+		 * @return the end of the interval
+		 */
+		private double wilson(int side) {
+			double p = getEstimate();
+			double z2 = Z_95 * Z_95;
+			double center = p + z2 / (2 * samples);
+			double spread = Z_95 * Math.sqrt(p * (1 - p) / samples + z2 / (4.0 * samples * samples));
+			return Math.min(1, Math.max(0, (center + side * spread) / (1 + z2 / samples)));
+		}
+
+		/**
+		 * Returns the estimate as a string, for example
+		 * 0.000792 (95% CI 0.000780 to 0.000804), 1000000 samples at 25000000 samples/s
+		 * @return the estimate in string format
+		 */
+		@Override
+		public String toString() {
+			return String.format("%.6g (95%% CI %.6g to %.6g), %d samples at %.0f samples/s", getEstimate(), getLower(),
+					getUpper(), samples, getSamplesPerSecond());
+		}
+	}
+}
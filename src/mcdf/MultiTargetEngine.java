@@ -0,0 +1,154 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+/**
+ * Engine that finds the probability of every weight class in one traversal. A state is the
+ * number of votes removed from each weight class of the full list, without leaving out a vote
+ * of interest, so every weight class reaches the same states and shares the same removal tree.
+ * Each state is visited once and calculates the probability of every class that still has a
+ * vote left. The memo keys are the packed removed counts together with the weight class of
+ * the vote of interest, so the results of different classes never mix.
+ * <p>
+ * For a vote of class t that is still in the list, the probability at a state is
+ * (w_t + p * sum_j P_t(state + j) * w_j * m_j) / total, where m_j is the number of votes
+ * left in class j other than the vote of interest.
+ */
+public class MultiTargetEngine {
+	/** Backend of the exact results */
+	private static final FractionBackend EXACT = new FractionBackend();
+
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Total possible length of a combined vote (new_vote_extra_effect_max_count + 1) */
+	private final int rounds;
+
+	/** Number of bits used by the removed count of one weight class in a packed key */
+	private final int bitsPerClass;
+
+	/** Number of low bits of a memo key that hold the weight class of the vote of interest */
+	private final int targetBits;
+
+	/**
+	 * Creates an engine for every weight class of the table
+	 * @param table weight classes of the full vote list
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 * @throws IllegalArgumentException if the removed counts and weight class cannot be packed into a long
+	 */
+	public MultiTargetEngine(WeightTable table, int rounds) {
+		this.table = table;
+		this.rounds = rounds;
+		bitsPerClass = Math.max(1, 32 - Integer.numberOfLeadingZeros(rounds - 1));
+		targetBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(table.getClassCount() - 1));
+		if(bitsPerClass * table.getClassCount() + targetBits > Long.SIZE)
+			throw new IllegalArgumentException("Too many weight classes for " + rounds + " rounds.");
+	}
+
+	/**
+	 * Finds the exact probability of a vote of every weight class appearing anywhere in a vote
+	 * including combined votes
+	 * @param chance probability that an extra vote will be added at each step
+	 * @return array where element i is the probability for a vote of weight class i, equal to
+	 * {@link WeightClassEngine#probabilityGivenMultipleRounds()} of that class. Repeal votes are
+	 * not considered.
+	 */
+	public Fraction[] probabilities(Fraction chance) {
+		return probabilities(EXACT, chance).toArray(new Fraction[0]);
+	}
+
+	/**
+	 * Finds the probability of a vote of every weight class using any number type
+	 * @param backend operations of the number type
+	 * @param chance probability that an extra vote will be added at each step, in the number type
+	 * @return list where element i is the probability for a vote of weight class i
+	 */
+	public <T> ArrayList<T> probabilities(NumericBackend<T> backend, T chance) {
+		LongHashMap<T> memo = new LongHashMap<T>();
+		int[] removedCounts = new int[table.getClassCount()];
+		fill(backend, chance, memo, removedCounts, 0L, BigInteger.ZERO, rounds);
+
+		ArrayList<T> results = new ArrayList<T>();
+		for(int t = 0; t < removedCounts.length; t++)
+			results.add(memo.get(memoKey(0L, t)));
+		return results;
+	}
+
+	/**
+	 * Calculates the probability of every weight class with a vote left at the state and stores
+	 * them in the memo, after doing the same for every state below it
+	 * @param backend operations of the number type
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param memo results keyed by {@link #memoKey}
+	 * @param removedCounts number of votes removed from each weight class. Modified during the
+	 * call but restored before returning.
+	 * @param stateKey removedCounts packed into a long
+	 * @param removedWeight sum of the weights of the removed votes
+	 * @param roundsLeft depth to continue checking
+	 */
+	private <T> void fill(NumericBackend<T> backend, T chance, LongHashMap<T> memo, int[] removedCounts, long stateKey,
+			BigInteger removedWeight, int roundsLeft) {
+		int classes = removedCounts.length;
+
+		//The first class with a vote left shows if the state was visited. A list shorter than the
+		//rounds can have every vote removed, and that state has no vote of interest to store.
+		int firstTarget = 0;
+		while(firstTarget < classes && table.getVoteCount(firstTarget) == removedCounts[firstTarget])
+			firstTarget++;
+		if(firstTarget == classes)
+			return;
+		boolean visited = memo.get(memoKey(stateKey, firstTarget)) != null;
+		if(CalculationMetrics.enabled())
+			CalculationMetrics.cacheLookup(visited);
+		if(visited)
+			return;
+		if(CalculationMetrics.enabled())
+			CalculationMetrics.node(rounds - roundsLeft);
+
+		ArrayList<NumericBackend.Accumulator<T>> branchSums = new ArrayList<NumericBackend.Accumulator<T>>();
+		for(int t = 0; t < classes; t++)
+			branchSums.add(backend.newAccumulator());
+
+		if(roundsLeft > 1) {
+			for(int j = 0; j < classes; j++) {
+				int remaining = table.getVoteCount(j) - removedCounts[j];
+				if(remaining == 0)
+					continue;
+
+				removedCounts[j]++;
+				long branchKey = stateKey + (1L << (j * bitsPerClass));
+				fill(backend, chance, memo, removedCounts, branchKey, removedWeight.add(table.getClassWeight(j)), roundsLeft - 1);
+				removedCounts[j]--;
+
+				//Add the branch to every vote of interest that is not the removed vote itself
+				for(int t = 0; t < classes; t++) {
+					int others = remaining - (t == j ? 1 : 0);
+					if(others == 0 || table.getVoteCount(t) == removedCounts[t])
+						continue;
+					branchSums.get(t).add(memo.get(memoKey(branchKey, t)),
+							table.getClassWeight(j).multiply(BigInteger.valueOf(others)));
+				}
+			}
+		}
+
+		BigInteger totalWeight = table.getTotalWeight().subtract(removedWeight);
+		for(int t = 0; t < classes; t++) {
+			if(table.getVoteCount(t) == removedCounts[t])
+				continue;
+			T chosenThisRound = backend.fromRatio(table.getClassWeight(t), BigInteger.ONE);
+			T numerator = backend.add(chosenThisRound, backend.multiply(branchSums.get(t).sum(), chance));
+			memo.put(memoKey(stateKey, t), backend.normalize(backend.divide(numerator, totalWeight)));
+		}
+	}
+
+	/**
+	 * Packs a state and the weight class of the vote of interest into one memo key
+	 * @param stateKey packed removed counts
+	 * @param target weight class of the vote of interest
+	 * @return the memo key
+	 */
+	private long memoKey(long stateKey, int target) {
+		return (stateKey << targetBits) | target;
+	}
+}
@@ -0,0 +1,79 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Number type used by the weight class recursion. The recursion only needs a few operations,
+ * so the same recursion can produce an exact {@link Fraction}, a fast floating point
+ * approximation or any other representation by choosing a backend.
+ * @param <T> type of the numbers
+ */
+public interface NumericBackend<T> {
+	/**
+	 * Converts a ratio of two integers into the number type
+	 * @param numerator numerator of the ratio
+	 * @param denominator denominator of the ratio, must not be zero
+	 * @return numerator / denominator
+	 */
+	T fromRatio(BigInteger numerator, BigInteger denominator);
+
+	/**
+	 * Adds two numbers
+	 * @param a first addend
+	 * @param b second addend
+	 * @return a + b
+	 */
+	T add(T a, T b);
+
+	/**
+	 * Multiplies two numbers
+	 * @param a first factor
+	 * @param b second factor
+	 * @return a * b
+	 */
+	T multiply(T a, T b);
+
+	/**
+	 * Divides a number by an integer
+	 * @param a dividend
+	 * @param divisor divisor, must not be zero
+	 * @return a / divisor
+	 */
+	T divide(T a, BigInteger divisor);
+
+	/**
+	 * Creates an empty sum for the branches of one state
+	 * @return a new accumulator starting at zero
+	 */
+	Accumulator<T> newAccumulator();
+
+	/**
+	 * Brings a number into its preferred form before it is stored and reused by later
+	 * levels, such as simplifying a fraction. Does nothing by default.
+	 * @param value number to normalize
+	 * @return a number equal to value
+	 */
+	default T normalize(T value) {
+		return value;
+	}
+
+	/**
+	 * Running sum of terms that are each multiplied by an integer factor
+	 * @param <T> type of the numbers
+	 */
+	interface Accumulator<T> {
+		/**
+		 * Adds term * factor to the sum
+		 * @param term number to add
+		 * @param factor integer the term is multiplied by
+		 * @return this accumulator
+		 */
+		Accumulator<T> add(T term, BigInteger factor);
+
+		/**
+		 * Returns the sum of every term added so far
+		 * @return the sum
+		 */
+		T sum();
+	}
+}
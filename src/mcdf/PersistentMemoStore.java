@@ -0,0 +1,212 @@
+package mcdf;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Append-only file of cached recursion results that is kept between runs. Each result is
+ * keyed by a namespace, which identifies the weight table, vote of interest, extra effect
+ * chance and rounds, and by the packed removed counts used by {@link WeightClassEngine}.
+ * <p>
+ * Opening the store memory-maps the file and loads every record. New results are appended to
+ * the end of the file. A record cut off by a crash is dropped and the file is truncated to the
+ * last complete record. The store is thread-safe.
+ * <p>
+ * File format: the 8 byte magic "MCDFMEMO", then records of
+ * namespace (long), key (long), numerator length (int), numerator bytes,
+ * denominator length (int), denominator bytes. Numbers are BigInteger two's complement bytes.
+ */
+public class PersistentMemoStore implements Closeable {
+	/** First bytes of every store file */
+	private static final byte[] MAGIC = "MCDFMEMO".getBytes(StandardCharsets.US_ASCII);
+
+	/** Loaded and appended results of every namespace */
+	private final HashMap<Long, LongHashMap<Fraction>> namespaces = new HashMap<Long, LongHashMap<Fraction>>();
+
+	/** Stream appending new records to the file */
+	private final DataOutputStream out;
+
+	/**
+	 * Opens the store file, creating it if it does not exist, and loads every record
+	 * @param path path of the store file
+	 * @throws IOException if the file cannot be read or written
+	 * @throws IllegalArgumentException if the file is not a store file
+	 */
+	public PersistentMemoStore(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			if(channel.size() == 0) {
+				channel.write(ByteBuffer.wrap(MAGIC));
+			} else {
+				long valid = load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+				if(valid < channel.size())
+					channel.truncate(valid);
+			}
+		}
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.APPEND)));
+	}
+
+	/**
+	 * Reads every complete record of the mapped file
+	 * @param buffer the mapped file
+	 * @return the number of bytes up to the end of the last complete record
+	 * @throws IllegalArgumentException if the file does not start with the magic bytes
+	 */
+	private long load(MappedByteBuffer buffer) {
+		byte[] magic = new byte[MAGIC.length];
+		if(buffer.remaining() < magic.length)
+			throw new IllegalArgumentException("File is not a memo store.");
+		buffer.get(magic);
+		if(!Arrays.equals(magic, MAGIC))
+			throw new IllegalArgumentException("File is not a memo store.");
+
+		int valid = buffer.position();
+		try {
+			while(buffer.hasRemaining()) {
+				long namespace = buffer.getLong();
+				long key = buffer.getLong();
+				BigInteger numerator = readInteger(buffer);
+				BigInteger denominator = readInteger(buffer);
+				namespace(namespace).put(key, new Fraction(numerator, denominator));
+				valid = buffer.position();
+			}
+		} catch(BufferUnderflowException | IllegalArgumentException e) {
+			//Partly written last record, everything before it is kept
+		}
+		return valid;
+	}
+
+	/**
+	 * Reads one length-prefixed integer from the buffer
+	 * @param buffer buffer positioned at the length
+	 * @return the integer
+	 * @throws BufferUnderflowException if the buffer ends before the integer does
+	 */
+	private static BigInteger readInteger(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length <= 0 || length > buffer.remaining())
+			throw new BufferUnderflowException();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new BigInteger(bytes);
+	}
+
+	/**
+	 * Returns the memo table of one calculation. Results put in the table are appended to the file.
+	 * @param table weight classes of the vote list
+	 * @param eventClass weight class of the vote of interest
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 * @return memo table for {@link WeightClassEngine#probabilityGivenMultipleRounds(MemoTable)}
+	 */
+	public MemoTable<Fraction> memoFor(WeightTable table, int eventClass, Fraction chance, int rounds) {
+		long namespace = namespaceOf(table, eventClass, chance, rounds);
+		return new MemoTable<Fraction>() {
+			@Override
+			public Fraction get(long key) {
+				synchronized(PersistentMemoStore.this) {
+					return namespace(namespace).get(key);
+				}
+			}
+
+			@Override
+			public void put(long key, Fraction value) {
+				append(namespace, key, value);
+			}
+		};
+	}
+
+	/**
+	 * Writes any appended records that are still buffered to the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Writes any buffered records and closes the file
+	 * @throws IOException if the file cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Stores a result and appends it to the file
+	 * @param namespace namespace of the calculation
+	 * @param key packed removed counts
+	 * @param value result of the state
+	 * @throws UncheckedIOException if the file cannot be written
+	 */
+	private synchronized void append(long namespace, long key, Fraction value) {
+		LongHashMap<Fraction> results = namespace(namespace);
+		if(results.get(key) != null)
+			return;
+		results.put(key, value);
+		try {
+			out.writeLong(namespace);
+			out.writeLong(key);
+			byte[] numerator = value.getNumerator().toByteArray();
+			out.writeInt(numerator.length);
+			out.write(numerator);
+			byte[] denominator = value.getDenominator().toByteArray();
+			out.writeInt(denominator.length);
+			out.write(denominator);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the results of a namespace, creating an empty map if there are none
+	 * @param namespace namespace of the calculation
+	 * @return results of the namespace
+	 */
+	private LongHashMap<Fraction> namespace(long namespace) {
+		return namespaces.computeIfAbsent(namespace, n -> new LongHashMap<Fraction>());
+	}
+
+	/**
+	 * Hashes everything a cached result depends on into a namespace. The vote IDs do not change
+	 * any weight class result, so only the class weights and counts of the table are hashed.
+	 * @param table weight classes of the vote list
+	 * @param eventClass weight class of the vote of interest
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param rounds total possible length of a combined vote
+	 * @return first 8 bytes of the SHA-256 hash of the parameters
+	 */
+	private static long namespaceOf(WeightTable table, int eventClass, Fraction chance, int rounds) {
+		StringBuilder description = new StringBuilder();
+		for(int i = 0; i < table.getClassCount(); i++)
+			description.append(table.getClassWeight(i)).append('x').append(table.getVoteCount(i)).append(',');
+		description.append('|').append(eventClass).append('|').append(chance).append('|').append(rounds);
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes(StandardCharsets.UTF_8));
+			long namespace = 0;
+			for(int i = 0; i < Long.BYTES; i++)
+				namespace = (namespace << 8) | (hash[i] & 0xFF);
+			return namespace;
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package mcdf;
+
+/**
+ * Polynomial in one variable with exact Fraction coefficients. Used to keep the extra effect
+ * chance symbolic so that one calculation can be evaluated at any chance afterwards.
+ */
+public class Polynomial {
+	/** Coefficients of the polynomial. Index i is the coefficient of x^i. */
+	private final Fraction[] coefficients;
+
+	/**
+	 * Static polynomial equal to zero
+	 */
+	public final static Polynomial ZERO = new Polynomial(new Fraction[] {Fraction.ZERO});
+
+	/**
+	 * Static polynomial equal to the variable x
+	 */
+	public final static Polynomial VARIABLE = new Polynomial(new Fraction[] {Fraction.ZERO, Fraction.ONE});
+
+	/**
+	 * Constructor of Polynomial using the coefficients in increasing powers
+	 * @param coefficients coefficients where index i is the coefficient of x^i. Must not be empty.
+	 * @throws IllegalArgumentException if coefficients is empty
+	 */
+	public Polynomial(Fraction[] coefficients) {
+		if(coefficients.length == 0)
+			throw new IllegalArgumentException("Polynomial must have at least one coefficient.");
+		this.coefficients = coefficients.clone();
+	}
+
+	/**
+	 * Creates a polynomial with only a constant term
+	 * @param constant the constant term
+	 * @return the constant polynomial
+	 */
+	public static Polynomial constant(Fraction constant) {
+		return new Polynomial(new Fraction[] {constant});
+	}
+
+	/**
+	 * Returns the coefficient of x^power
+	 * @param power power of the term
+	 * @return the coefficient, zero if power is above the stored terms
+	 */
+	public Fraction getCoefficient(int power) {
+		if(power >= coefficients.length)
+			return Fraction.ZERO;
+		return coefficients[power];
+	}
+
+	/**
+	 * Returns the highest power that has a stored coefficient
+	 * @return the highest stored power
+	 */
+	public int getDegree() {
+		return coefficients.length - 1;
+	}
+
+	/**
+	 * Adds this polynomial with the other polynomial and returns their sum
+	 * @param b the other polynomial that will be added
+	 * @return the sum of both polynomials
+	 */
+	public Polynomial add(Polynomial b) {
+		Fraction[] sum = new Fraction[Math.max(coefficients.length, b.coefficients.length)];
+		for(int i = 0; i < sum.length; i++)
+			sum[i] = getCoefficient(i).add(b.getCoefficient(i));
+		return new Polynomial(sum);
+	}
+
+	/**
+	 * Multiplies every coefficient of this polynomial by the fraction
+	 * @param b the factor
+	 * @return the product of the polynomial and the fraction
+	 */
+	public Polynomial multiply(Fraction b) {
+		Fraction[] product = new Fraction[coefficients.length];
+		for(int i = 0; i < product.length; i++)
+			product[i] = coefficients[i].multiply(b);
+		return new Polynomial(product);
+	}
+
+	/**
+	 * Multiplies this polynomial with the other polynomial and returns their product
+	 * @param b the other factor
+	 * @return the product of both polynomials
+	 */
+	public Polynomial multiply(Polynomial b) {
+		Fraction[] product = new Fraction[coefficients.length + b.coefficients.length - 1];
+		for(int k = 0; k < product.length; k++) {
+			FractionAccumulator term = new FractionAccumulator();
+			for(int i = Math.max(0, k - b.coefficients.length + 1); i <= Math.min(k, coefficients.length - 1); i++)
+				term.add(coefficients[i].multiply(b.coefficients[k - i]));
+			product[k] = term.sum();
+		}
+		return new Polynomial(product);
+	}
+
+	/**
+	 * Multiplies this polynomial by the variable x, raising every term by one power
+	 * @return the product of the polynomial and x
+	 */
+	public Polynomial multiplyByVariable() {
+		Fraction[] product = new Fraction[coefficients.length + 1];
+		product[0] = Fraction.ZERO;
+		System.arraycopy(coefficients, 0, product, 1, coefficients.length);
+		return new Polynomial(product);
+	}
+
+	/**
+	 * Simplifies every coefficient of the polynomial
+	 * @return polynomial with the same value and simplified coefficients
+	 */
+	public Polynomial reduce() {
+		Fraction[] reducedCoefficients = new Fraction[coefficients.length];
+		for(int i = 0; i < reducedCoefficients.length; i++)
+			reducedCoefficients[i] = coefficients[i].reduce();
+		return new Polynomial(reducedCoefficients);
+	}
+
+	/**
+	 * Evaluates the polynomial using Horner's method
+	 * @param x the value of the variable
+	 * @return the exact value of the polynomial at x
+	 */
+	public Fraction evaluate(Fraction x) {
+		Fraction result = coefficients[coefficients.length - 1];
+		for(int i = coefficients.length - 2; i >= 0; i--)
+			result = result.multiply(x).add(coefficients[i]);
+		return result;
+	}
+
+	/**
+	 * Returns this polynomial as a string in increasing powers of x, for example
+	 * 1/2 + 3/4x + 5/6x^2
+	 * @return the polynomial in string format
+	 */
+	@Override
+	public String toString() {
+		StringBuilder resultText = new StringBuilder();
+		resultText.append(coefficients[0]);
+		for(int i = 1; i < coefficients.length; i++) {
+			resultText.append(" + ").append(coefficients[i]).append("x");
+			if(i > 1)
+				resultText.append("^").append(i);
+		}
+		return resultText.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package mcdf;
+
+import java.math.BigInteger;
+
+/**
+ * Exact backend using {@link Polynomial}. Passing {@link Polynomial#VARIABLE} as the extra
+ * effect chance keeps the chance symbolic.
+ */
+public class PolynomialBackend implements NumericBackend<Polynomial> {
+	@Override
+	public Polynomial fromRatio(BigInteger numerator, BigInteger denominator) {
+		return Polynomial.constant(new Fraction(numerator, denominator));
+	}
+
+	@Override
+	public Polynomial add(Polynomial a, Polynomial b) {
+		return a.add(b);
+	}
+
+	@Override
+	public Polynomial multiply(Polynomial a, Polynomial b) {
+		return a.multiply(b);
+	}
+
+	@Override
+	public Polynomial divide(Polynomial a, BigInteger divisor) {
+		return a.multiply(new Fraction(BigInteger.ONE, divisor));
+	}
+
+	@Override
+	public NumericBackend.Accumulator<Polynomial> newAccumulator() {
+		return new NumericBackend.Accumulator<Polynomial>() {
+			private Polynomial sum = Polynomial.ZERO;
+
+			@Override
+			public NumericBackend.Accumulator<Polynomial> add(Polynomial term, BigInteger factor) {
+				sum = sum.add(term.multiply(new Fraction(factor, BigInteger.ONE)));
+				return this;
+			}
+
+			@Override
+			public Polynomial sum() {
+				return sum;
+			}
+		};
+	}
+
+	@Override
+	public Polynomial normalize(Polynomial value) {
+		return value.reduce();
+	}
+}
@@ -0,0 +1,122 @@
+package mcdf;
+
+/**
+ * Full distribution of where a vote type appears in the next vote. Position 0 is the base vote
+ * and position k is the kth extra vote of a combined vote. Also holds the distribution of the
+ * number of votes in the next vote, which does not depend on the vote type.
+ * <p>
+ * A combined vote reaches position k with probability p^k, independent of which votes were
+ * drawn, so the probability of position k is (1 - repeal) p^k times the probability that the
+ * vote is kth in the random order of the whole list. Those order probabilities are the
+ * coefficients of {@link WeightClassEngine#probabilityPolynomial()}, so every position comes
+ * from the same single pass.
+ * <p>
+ * The lengths come from the same coefficients. Every vote of the list can be at any position of
+ * the random order below the number of votes, so the order probabilities are non-zero exactly up
+ * to the last vote of the list. A combined vote stops with probability 1 - p after each vote
+ * unless it has reached that last vote or the max count, where it always stops.
+ */
+public class PositionDistribution {
+	/** Probability of the vote appearing at each position. Index 0 is the base vote. */
+	private final Fraction[] positions;
+
+	/** Probability of the next vote having each number of votes. Index L - 1 is length L. */
+	private final Fraction[] lengths;
+
+	/** Probability of the next vote being a repeal vote */
+	private final Fraction repeal;
+
+	/**
+	 * Builds the distribution from the order probabilities of the vote
+	 * @param orderProbabilities polynomial whose coefficient of x^k is the probability that the
+	 * vote is at position k of the random order of the whole list
+	 * @param repealChance probability that the next vote is a repeal vote
+	 * @param extraChance probability that an extra vote will be added at each step
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 */
+	public PositionDistribution(Polynomial orderProbabilities, Fraction repealChance, Fraction extraChance, int rounds) {
+		repeal = repealChance;
+		Fraction notRepeal = Fraction.ONE.subtract(repealChance);
+		Fraction stop = Fraction.ONE.subtract(extraChance);
+
+		//A list with fewer votes than the rounds runs out at its last vote
+		int longest = rounds;
+		while(longest > 1 && orderProbabilities.getCoefficient(longest - 1).getNumerator().signum() == 0)
+			longest--;
+
+		positions = new Fraction[rounds];
+		lengths = new Fraction[rounds];
+		Fraction reach = notRepeal;
+		for(int k = 0; k < rounds; k++) {
+			//reach is the probability of a vote with at least k + 1 votes
+			positions[k] = reach.multiply(orderProbabilities.getCoefficient(k)).reduce();
+			if(k + 1 < longest)
+				lengths[k] = reach.multiply(stop).reduce();
+			else
+				lengths[k] = k + 1 == longest ? reach.reduce() : Fraction.ZERO;
+			reach = k + 1 < longest ? reach.multiply(extraChance) : Fraction.ZERO;
+		}
+	}
+
+	/**
+	 * Returns the number of positions in a vote of the largest length
+	 * @return new_vote_extra_effect_max_count + 1
+	 */
+	public int getPositionCount() {
+		return positions.length;
+	}
+
+	/**
+	 * Returns the probability of the vote appearing at the position
+	 * @param position 0 for the base vote, k for the kth extra vote
+	 * @return the exact probability
+	 */
+	public Fraction getPosition(int position) {
+		return positions[position];
+	}
+
+	/**
+	 * Returns the probability of the next vote having the number of votes
+	 * @param length number of votes in the combined vote, from 1 to new_vote_extra_effect_max_count + 1
+	 * @return the exact probability, not counting repeal votes
+	 */
+	public Fraction getLength(int length) {
+		return lengths[length - 1];
+	}
+
+	/**
+	 * Returns the probability of the next vote being a repeal vote
+	 * @return the exact probability
+	 */
+	public Fraction getRepeal() {
+		return repeal;
+	}
+
+	/**
+	 * Returns the probability of the vote appearing anywhere, the sum of every position
+	 * @return the exact probability, equal to {@link ProbabilityCalculator#probability}
+	 */
+	public Fraction getTotal() {
+		FractionAccumulator total = new FractionAccumulator();
+		for(Fraction position : positions)
+			total.add(position);
+		return total.sum();
+	}
+
+	/**
+	 * Returns the distribution as CSV rows in the format quantity,index,fraction. Positions are
+	 * rows position,0 (base vote) to position,k, lengths are rows length,1 to length,k + 1, and
+	 * the last row is repeal,0.
+	 * @return the rows in string format
+	 */
+	public String toCSV() {
+		StringBuilder rows = new StringBuilder("quantity,index,probability\n");
+		for(int k = 0; k < positions.length; k++)
+			rows.append("position,").append(k).append(',').append(positions[k]).append('\n');
+		for(int l = 1; l <= lengths.length; l++)
+			rows.append("length,").append(l).append(',').append(lengths[l - 1]).append('\n');
+		rows.append("repeal,0,").append(repeal).append('\n');
+		return rows.toString();
+	}
+
+}
@@ -0,0 +1,586 @@
+package mcdf;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Immutable calculator for one weight table. Unlike the static methods of
+ * {@link VoteProbabilityCalculator}, an instance holds no mutable shared state other than
+ * its caches, which are concurrent maps keyed by every parameter the cached value depends on.
+ * One instance can be shared by any number of threads, and identical calls that run at the
+ * same time only calculate the result once.
+ */
+public class ProbabilityCalculator {
+	/** Denominator of the percentage values */
+	private static final BigInteger ONE_HUNDRED = BigInteger.valueOf(100);
+
+	/**
+	 * Significant digits carried beyond the tolerance by {@link #probabilityWithin}. Covers
+	 * the rounding that builds up over the levels so the interval usually meets the tolerance.
+	 */
+	private static final int GUARD_DIGITS = 10;
+
+	/** Weight class of the cache keys of results for every weight class */
+	private static final int ALL_CLASSES = -1;
+
+	/** Weight classes of the vote list */
+	private final WeightTable table;
+
+	/** Pool used to calculate the branches in parallel, or null to calculate on the calling thread */
+	private final ForkJoinPool pool;
+
+	/** Store that keeps exact recursion results between runs, or null to only cache in memory */
+	private final PersistentMemoStore store;
+
+	/**
+	 * Cached combined vote probabilities (before the repeal factor). The keys are the weight
+	 * class, extra effect percentage and max count.
+	 */
+	private final ConcurrentHashMap<ParameterKey, CompletableFuture<Fraction>> combinedResults =
+			new ConcurrentHashMap<ParameterKey, CompletableFuture<Fraction>>();
+
+	/**
+	 * Cached combined vote probabilities of every weight class (before the repeal factor). The
+	 * keys use {@link #ALL_CLASSES} as the weight class.
+	 */
+	private final ConcurrentHashMap<ParameterKey, CompletableFuture<Fraction[]>> allClassResults =
+			new ConcurrentHashMap<ParameterKey, CompletableFuture<Fraction[]>>();
+
+	/**
+	 * Cached combined vote probability polynomials in the extra effect chance (before the repeal
+	 * factor). The keys are the weight class and max count.
+	 */
+	private final ConcurrentHashMap<ParameterKey, CompletableFuture<Polynomial>> polynomialResults =
+			new ConcurrentHashMap<ParameterKey, CompletableFuture<Polynomial>>();
+
+	/**
+	 * Creates a calculator for the weight table
+	 * @param table weight classes of the vote list
+	 */
+	public ProbabilityCalculator(WeightTable table) {
+		this(table, null);
+	}
+
+	/**
+	 * Creates a calculator for the weight table that calculates combined vote probabilities
+	 * with {@link WeightClassEngine#probabilityParallel} on the pool
+	 * @param table weight classes of the vote list
+	 * @param pool pool used to calculate the branches in parallel, or null to calculate on the
+	 * calling thread
+	 */
+	public ProbabilityCalculator(WeightTable table, ForkJoinPool pool) {
+		this(table, pool, null);
+	}
+
+	/**
+	 * Creates a calculator for the weight table that loads and saves exact combined vote
+	 * results in the store, so a later run with the same values only needs to load the file
+	 * @param table weight classes of the vote list
+	 * @param pool pool used to calculate the branches in parallel when there is no store, or
+	 * null to calculate on the calling thread
+	 * @param store store of results kept between runs, or null to only cache in memory
+	 */
+	public ProbabilityCalculator(WeightTable table, ForkJoinPool pool, PersistentMemoStore store) {
+		this.table = table;
+		this.pool = pool;
+		this.store = store;
+	}
+
+	/**
+	 * Returns the weight table used by the calculator
+	 * @return the weight table
+	 */
+	public WeightTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote considering combined and repeal votes.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public Fraction probability(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		return probabilityOfClass(table.classOfVote(chosenVote), repealPercentage, newVoteExtraEffectPercentage,
+				newVoteExtraEffectMaxCount);
+	}
+
+	/**
+	 * Calculates the probability of a vote from the weight class appearing in the next vote
+	 * considering combined and repeal votes.
+	 * @param chosenClass weight class of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that a vote of the weight class will appear in the next vote
+	 */
+	public Fraction probabilityOfClass(int chosenClass, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		return combinedProbability(chosenClass, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount)
+				.multiply(notRepealProbability(repealPercentage));
+	}
+
+	/**
+	 * Finds the cached combined vote probability of the weight class (before the repeal factor)
+	 * or calculates it, loading and saving the recursion results in the store if there is one
+	 * @param chosenClass weight class of the vote to check the probability of
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that a vote of the weight class will appear in a vote
+	 * including in any combined vote
+	 */
+	private Fraction combinedProbability(int chosenClass, BigInteger newVoteExtraEffectPercentage,
+			int newVoteExtraEffectMaxCount) {
+		ParameterKey key = new ParameterKey(chosenClass, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+		return cached(combinedResults, key, () -> {
+			Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+			int rounds = newVoteExtraEffectMaxCount + 1;
+			WeightClassEngine engine = new WeightClassEngine(table, chosenClass, chance, rounds);
+			if(store != null)
+				return engine.probabilityGivenMultipleRounds(store.memoFor(table, chosenClass, chance, rounds));
+			return pool == null ? engine.probabilityBottomUp() : engine.probabilityParallel(pool);
+		});
+	}
+
+	/**
+	 * Calculates the exact probability of a vote type appearing in the next vote with the memoized
+	 * recursion, caching the recursion results in the provided table. A {@link BoundedMemoTable}
+	 * keeps the memory of the recursion under a budget at high max counts. Results are not cached
+	 * by the calculator.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param memo empty table for the recursion results, must not be shared with other calculations
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public Fraction probability(String chosenVote, MemoTable<Fraction> memo, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		int chosenClass = table.classOfVote(chosenVote);
+		Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+		WeightClassEngine engine = new WeightClassEngine(table, chosenClass, chance, newVoteExtraEffectMaxCount + 1);
+		return engine.probabilityGivenMultipleRounds(memo).multiply(notRepealProbability(repealPercentage));
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote considering combined and
+	 * repeal votes, using any number type. Runs the same table as the exact calculation, so a
+	 * {@link DoubleBackend} or {@link BigDecimalBackend} gives a fast approximation while
+	 * {@link FractionBackend} gives the exact value. Results are not cached.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param backend operations of the number type
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the probability that chosenVote will appear in the next vote in the number type
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public <T> T probability(String chosenVote, NumericBackend<T> backend, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		int chosenClass = table.classOfVote(chosenVote);
+		T chance = backend.fromRatio(newVoteExtraEffectPercentage, ONE_HUNDRED);
+		T result = new WeightClassEngine(table, chosenClass, newVoteExtraEffectMaxCount + 1).probabilityBottomUp(backend, chance);
+
+		//Multiply result by the probability it is not a repeal vote
+		return backend.multiply(result, backend.fromRatio(ONE_HUNDRED.subtract(repealPercentage), ONE_HUNDRED));
+	}
+
+	/**
+	 * Calculates the same exact probability as {@link #probability(String, BigInteger, BigInteger, int)}
+	 * with {@link ModularEngine}, which works modulo several primes in parallel and rebuilds the
+	 * fraction at the end. Results are not cached.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public Fraction probabilityModular(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		int chosenClass = table.classOfVote(chosenVote);
+		Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+		ModularEngine engine = new ModularEngine(table, chosenClass, newVoteExtraEffectMaxCount + 1);
+		Fraction result = engine.probability(chance, pool == null ? ForkJoinPool.commonPool() : pool);
+		return result.multiply(notRepealProbability(repealPercentage));
+	}
+
+	/**
+	 * Calculates the same exact probability as {@link #probability(String, BigInteger, BigInteger, int)}
+	 * with {@link ClosedFormEngine}, which sums the closed form position probabilities instead of
+	 * running the recursion. It works with integers until the last step, so it is much faster
+	 * than the recursion at high max counts. Results are not cached.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public Fraction probabilityClosedForm(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		ClosedFormEngine engine = new ClosedFormEngine(table, table.classOfVote(chosenVote), newVoteExtraEffectMaxCount + 1);
+		Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+		return engine.probability(chance).multiply(notRepealProbability(repealPercentage));
+	}
+
+	/**
+	 * Calculates an interval that is guaranteed to contain the probability of a vote type appearing
+	 * in the next vote, with a width no larger than the tolerance. The interval is first found with
+	 * {@link IntervalBackend}. Only if it is wider than the tolerance is the exact fraction
+	 * calculated and rounded outward to an interval.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param tolerance largest allowed width of the interval, must be positive
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return interval containing the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table or tolerance is
+	 * not positive
+	 */
+	public Interval probabilityWithin(String chosenVote, BigDecimal tolerance, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		return probabilityWithin(chosenVote, tolerance, toleranceDigits(tolerance) + GUARD_DIGITS, repealPercentage,
+				newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+	}
+
+	/**
+	 * Same as {@link #probabilityWithin(String, BigDecimal, BigInteger, BigInteger, int)} with a
+	 * chosen precision for the interval calculation. A low precision makes the interval too wide,
+	 * which runs the exact fallback.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param tolerance largest allowed width of the interval, must be positive
+	 * @param precision number of significant digits of the interval calculation
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return interval containing the exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table or tolerance is
+	 * not positive
+	 */
+	Interval probabilityWithin(String chosenVote, BigDecimal tolerance, int precision, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		if(tolerance.signum() <= 0)
+			throw new IllegalArgumentException("Tolerance must be positive.");
+
+		Interval result = probability(chosenVote, new IntervalBackend(precision), repealPercentage,
+				newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+		if(result.width().compareTo(tolerance) <= 0)
+			return result;
+
+		//The interval is too wide, fall back to the exact fraction rounded to the tolerance
+		Fraction exact = probability(chosenVote, repealPercentage, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+		return Interval.of(exact, Math.max(precision, toleranceDigits(tolerance)));
+	}
+
+	/**
+	 * Finds the significant digits a probability needs so one unit in the last digit is no
+	 * larger than the tolerance. Probabilities are at most one, so the digits after the decimal
+	 * point needed by the tolerance are enough.
+	 * @param tolerance positive tolerance
+	 * @return number of significant digits, at least one
+	 */
+	private static int toleranceDigits(BigDecimal tolerance) {
+		return Math.max(1, tolerance.scale() - tolerance.precision() + 1);
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote as an exact polynomial
+	 * in the new_vote_extra_effect_chance. The polynomial only needs to be calculated once per max
+	 * count and can then be evaluated at any extra effect chance.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return polynomial in the extra effect chance (as a fraction, not a percentage) giving the
+	 * exact probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public Polynomial probabilityPolynomial(String chosenVote, BigInteger repealPercentage, int newVoteExtraEffectMaxCount) {
+		return combinedPolynomial(table.classOfVote(chosenVote), newVoteExtraEffectMaxCount)
+				.multiply(notRepealProbability(repealPercentage));
+	}
+
+	/**
+	 * Calculates the probability of both votes of every pair of votes appearing in the next vote.
+	 * Pairs of votes from the same two weight classes have the same probability, and every pair
+	 * of weight classes is found in one traversal with {@link CooccurrenceEngine}.
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return matrix of the exact probability of every pair, with the probability of each vote
+	 * appearing on the diagonal
+	 */
+	public CooccurrenceMatrix cooccurrence(BigInteger repealPercentage, BigInteger newVoteExtraEffectPercentage,
+			int newVoteExtraEffectMaxCount) {
+		Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+		Fraction[][] classPairs = new CooccurrenceEngine(table, newVoteExtraEffectMaxCount + 1).classMatrix(chance);
+		Fraction notRepeal = notRepealProbability(repealPercentage);
+		for(Fraction[] row : classPairs) {
+			for(int b = 0; b < row.length; b++)
+				row[b] = row[b].multiply(notRepeal).reduce();
+		}
+
+		Fraction[] classSingles = new Fraction[table.getClassCount()];
+		for(int i = 0; i < classSingles.length; i++)
+			classSingles[i] = probabilityOfClass(i, repealPercentage, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+		return new CooccurrenceMatrix(table, classPairs, classSingles);
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing at each position of the next vote and
+	 * the distribution of the number of votes in the next vote. Every position comes from the same
+	 * cached polynomial as {@link #probabilityPolynomial}, so only one pass is needed.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return the exact distribution of the positions of chosenVote and of the vote lengths
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public PositionDistribution distribution(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		Polynomial orderProbabilities = combinedPolynomial(table.classOfVote(chosenVote), newVoteExtraEffectMaxCount);
+		return new PositionDistribution(orderProbabilities, new Fraction(repealPercentage, ONE_HUNDRED),
+				new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED), newVoteExtraEffectMaxCount + 1);
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing at least once in each of the numbers of
+	 * next votes. Every vote is assumed to be independent and generated with the same values, see
+	 * {@link Horizon}. The single vote probability is only calculated once for all the numbers.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @param votes numbers of next votes, none negative
+	 * @return array where element i is the exact probability that chosenVote will appear in the
+	 * next votes[i] votes
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table or a number of
+	 * votes is negative
+	 */
+	public Fraction[] horizon(String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount, int[] votes) {
+		return Horizon.independent(probability(chosenVote, repealPercentage, newVoteExtraEffectPercentage,
+				newVoteExtraEffectMaxCount), votes);
+	}
+
+	/**
+	 * Creates a Markov chain of rule states for the probability of a vote type appearing within
+	 * the next votes when the values can change between votes. Each rule state is one combination
+	 * of the three values, and its single vote probability comes from the shared caches.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentages new_vote_repeal_vote_chance percentage integer of each rule state
+	 * @param newVoteExtraEffectPercentages new_vote_extra_effect_chance percentage integer of each rule state
+	 * @param newVoteExtraEffectMaxCounts new_vote_extra_effect_max_count value of each rule state
+	 * @param transitions probability of moving between rule states after a vote that did not show
+	 * chosenVote, see {@link MarkovHorizon}
+	 * @param start probability of starting in each rule state
+	 * @return chain that finds the exact probability for any number of next votes
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table, the arrays do
+	 * not have one entry per rule state or the probabilities do not add up to one
+	 */
+	public MarkovHorizon markovHorizon(String chosenVote, BigInteger[] repealPercentages,
+			BigInteger[] newVoteExtraEffectPercentages, int[] newVoteExtraEffectMaxCounts,
+			Fraction[][] transitions, Fraction[] start) {
+		int states = repealPercentages.length;
+		if(newVoteExtraEffectPercentages.length != states || newVoteExtraEffectMaxCounts.length != states)
+			throw new IllegalArgumentException("Every rule state needs all three values.");
+		Fraction[] single = new Fraction[states];
+		for(int s = 0; s < states; s++)
+			single[s] = probability(chosenVote, repealPercentages[s], newVoteExtraEffectPercentages[s],
+					newVoteExtraEffectMaxCounts[s]);
+		return new MarkovHorizon(single, transitions, start);
+	}
+
+	/**
+	 * Calculates the probability of every vote type appearing in the next vote considering combined
+	 * and repeal votes. Votes with the same weight have the same probability, and every weight class
+	 * is calculated in one traversal of the shared removal tree with {@link MultiTargetEngine}.
+	 * With a store, each weight class is calculated on its own so its results are loaded and saved.
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return map sorted by vote ID with the exact probability that each vote will appear in the next vote
+	 */
+	public TreeMap<String, Fraction> allProbabilities(BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		//Calculate every weight class in one traversal, then share the results with single class calls
+		Fraction[] combined = cached(allClassResults, new ParameterKey(ALL_CLASSES, newVoteExtraEffectPercentage,
+				newVoteExtraEffectMaxCount), () -> {
+			//The store keeps the results of each weight class, so with a store every class is
+			//calculated on its own to load and save them
+			if(store != null) {
+				Fraction[] classResults = new Fraction[table.getClassCount()];
+				for(int i = 0; i < classResults.length; i++)
+					classResults[i] = combinedProbability(i, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+				return classResults;
+			}
+			Fraction chance = new Fraction(newVoteExtraEffectPercentage, ONE_HUNDRED);
+			return new MultiTargetEngine(table, newVoteExtraEffectMaxCount + 1).probabilities(chance);
+		});
+		Fraction notRepeal = notRepealProbability(repealPercentage);
+		Fraction[] classResults = new Fraction[combined.length];
+		for(int i = 0; i < classResults.length; i++) {
+			combinedResults.putIfAbsent(new ParameterKey(i, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount),
+					CompletableFuture.completedFuture(combined[i]));
+			classResults[i] = combined[i].multiply(notRepeal);
+		}
+
+		TreeMap<String, Fraction> results = new TreeMap<String, Fraction>();
+		for(String voteId : table.getVoteIds())
+			results.put(voteId, classResults[table.classOfVote(voteId)]);
+		return results;
+	}
+
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote for every combination
+	 * of the three percentage and count values in the inclusive ranges. The repeal percentage only
+	 * scales the result, so it is applied after the combined vote probability is found. The combined
+	 * vote probability is calculated once per max count as a polynomial in the extra effect chance
+	 * and then evaluated at every chance.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealMin lowest new_vote_repeal_vote_chance percentage integer
+	 * @param repealMax highest new_vote_repeal_vote_chance percentage integer
+	 * @param extraChanceMin lowest new_vote_extra_effect_chance percentage integer
+	 * @param extraChanceMax highest new_vote_extra_effect_chance percentage integer
+	 * @param maxCountMin lowest new_vote_extra_effect_max_count value
+	 * @param maxCountMax highest new_vote_extra_effect_max_count value
+	 * @return CSV rows in the format repeal,extra_chance,max_count,fraction ordered by max
+	 * count, then extra effect chance, then repeal percentage
+	 * @throws IllegalArgumentException if a range minimum is greater than its maximum
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public ArrayList<String> sweep(String chosenVote, int repealMin, int repealMax,
+			int extraChanceMin, int extraChanceMax, int maxCountMin, int maxCountMax) {
+		if(repealMin > repealMax || extraChanceMin > extraChanceMax || maxCountMin > maxCountMax)
+			throw new IllegalArgumentException("Range minimums must not be greater than their maximums.");
+
+		int chosenClass = table.classOfVote(chosenVote);
+
+		//Probabilities that a vote is not a repeal vote, shared by every recursion
+		Fraction[] notRepealProbabilities = new Fraction[repealMax - repealMin + 1];
+		for(int repeal = repealMin; repeal <= repealMax; repeal++)
+			notRepealProbabilities[repeal - repealMin] = notRepealProbability(BigInteger.valueOf(repeal));
+
+		ArrayList<String> rows = new ArrayList<String>();
+		for(int maxCount = maxCountMin; maxCount <= maxCountMax; maxCount++) {
+			//Only one calculation for each max count, every chance is an evaluation of the polynomial
+			Polynomial combinedProbability = combinedPolynomial(chosenClass, maxCount);
+
+			for(int extraChance = extraChanceMin; extraChance <= extraChanceMax; extraChance++) {
+				Fraction chanceProbability = combinedProbability.evaluate(new Fraction(BigInteger.valueOf(extraChance), ONE_HUNDRED));
+
+				for(int repeal = repealMin; repeal <= repealMax; repeal++) {
+					Fraction result = chanceProbability.multiply(notRepealProbabilities[repeal - repealMin]);
+					rows.add(repeal + "," + extraChance + "," + maxCount + "," + result);
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Finds the cached combined vote polynomial of the weight class, calculating it if needed
+	 * @param chosenClass weight class of the vote of interest
+	 * @param newVoteExtraEffectMaxCount new_vote_extra_effect_max_count value
+	 * @return polynomial in the extra effect chance without the repeal factor
+	 */
+	private Polynomial combinedPolynomial(int chosenClass, int newVoteExtraEffectMaxCount) {
+		ParameterKey key = new ParameterKey(chosenClass, null, newVoteExtraEffectMaxCount);
+		return cached(polynomialResults, key,
+				() -> new WeightClassEngine(table, chosenClass, newVoteExtraEffectMaxCount + 1).probabilityPolynomial());
+	}
+
+	/**
+	 * Finds the probability that a vote is not a repeal vote
+	 * @param repealPercentage new_vote_repeal_vote_chance value percentage integer
+	 * @return 1 - repealPercentage / 100
+	 */
+	private static Fraction notRepealProbability(BigInteger repealPercentage) {
+		return Fraction.ONE.subtract(new Fraction(repealPercentage, ONE_HUNDRED));
+	}
+
+	/**
+	 * Returns the cached value for the key or calculates it. If several threads ask for the same
+	 * missing key at the same time, only the first calculates the value and the others wait for it.
+	 * A failed calculation is removed from the cache so a later call can retry.
+	 * @param cache cache of pending and finished calculations
+	 * @param key parameters of the value
+	 * @param calculation calculates the value if it is not cached
+	 * @return the value for the key
+	 */
+	private static <T> T cached(ConcurrentHashMap<ParameterKey, CompletableFuture<T>> cache, ParameterKey key,
+			Supplier<T> calculation) {
+		CompletableFuture<T> future = cache.get(key);
+		if(future == null) {
+			CompletableFuture<T> created = new CompletableFuture<T>();
+			future = cache.putIfAbsent(key, created);
+			if(future == null) {
+				future = created;
+				try {
+					created.complete(calculation.get());
+				} catch(RuntimeException | Error e) {
+					cache.remove(key, created);
+					created.completeExceptionally(e);
+				}
+			}
+		}
+
+		try {
+			return future.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Cache key made of the parameters a cached result depends on
+	 */
+	private static final class ParameterKey {
+		/** Weight class of the vote of interest */
+		private final int weightClass;
+
+		/** Extra effect percentage, or null if the result does not depend on it */
+		private final BigInteger extraEffectPercentage;
+
+		/** Max count of extra votes */
+		private final int maxCount;
+
+		private ParameterKey(int weightClass, BigInteger extraEffectPercentage, int maxCount) {
+			this.weightClass = weightClass;
+			this.extraEffectPercentage = extraEffectPercentage;
+			this.maxCount = maxCount;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof ParameterKey))
+				return false;
+			ParameterKey other = (ParameterKey) o;
+			return weightClass == other.weightClass && maxCount == other.maxCount
+					&& Objects.equals(extraEffectPercentage, other.extraEffectPercentage);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(weightClass, extraEffectPercentage, maxCount);
+		}
+	}
+}
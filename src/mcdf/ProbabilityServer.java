@@ -0,0 +1,266 @@
+package mcdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-lived HTTP service answering probability queries with JSON. One
+ * {@link ProbabilityCalculator} is shared by every request, so the weight table is only loaded
+ * once and calculated results stay cached between requests. Identical requests that arrive at
+ * the same time wait on the same calculation instead of each running it.
+ * <p>
+ * Endpoint: GET /probability?vote=&lt;vote_id&gt;&amp;repeal=&lt;percent&gt;&amp;chance=&lt;percent&gt;&amp;max=&lt;count&gt;
+ * returns {"vote":"...","repeal":50,"chance":30,"max_count":1,"probability":"n/d"}. Invalid
+ * queries, including values outside the ranges the game allows, return status 400 with
+ * {"error":"..."}. The highest max count can be lowered or raised, since the work of one request
+ * grows quickly with it.
+ */
+public class ProbabilityServer {
+	/** Path of the probability endpoint */
+	private static final String PROBABILITY_PATH = "/probability";
+
+	/** Lowest new_vote_repeal_vote_chance percentage the game allows */
+	private static final int MIN_REPEAL = 20;
+
+	/** Highest new_vote_repeal_vote_chance percentage the game allows */
+	private static final int MAX_REPEAL = 80;
+
+	/** Lowest new_vote_extra_effect_chance percentage the game allows */
+	private static final int MIN_CHANCE = 0;
+
+	/** Highest new_vote_extra_effect_chance percentage the game allows */
+	private static final int MAX_CHANCE = 80;
+
+	/** Highest new_vote_extra_effect_max_count the game allows, used when no other limit is given */
+	public static final int DEFAULT_MAX_COUNT_LIMIT = 5;
+
+	/** Calculator shared by every request */
+	private final ProbabilityCalculator calculator;
+
+	/** Underlying JDK server */
+	private final HttpServer server;
+
+	/** Threads that run the requests */
+	private final ExecutorService executor;
+
+	/** Highest max count a request may ask for */
+	private final int maxCountLimit;
+
+	/**
+	 * Creates a server on the port that accepts max counts up to {@link #DEFAULT_MAX_COUNT_LIMIT}.
+	 * The server does not accept requests until {@link #start()}.
+	 * @param calculator calculator shared by every request
+	 * @param port port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public ProbabilityServer(ProbabilityCalculator calculator, int port) throws IOException {
+		this(calculator, port, DEFAULT_MAX_COUNT_LIMIT);
+	}
+
+	/**
+	 * Creates a server on the port. The server does not accept requests until {@link #start()}.
+	 * @param calculator calculator shared by every request
+	 * @param port port to listen on, or 0 for any free port
+	 * @param maxCountLimit highest max count a request may ask for
+	 * @throws IOException if the port cannot be bound
+	 * @throws IllegalArgumentException if maxCountLimit is negative
+	 */
+	public ProbabilityServer(ProbabilityCalculator calculator, int port, int maxCountLimit) throws IOException {
+		if(maxCountLimit < 0)
+			throw new IllegalArgumentException("Max count limit must not be negative.");
+		this.calculator = calculator;
+		this.maxCountLimit = maxCountLimit;
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext(PROBABILITY_PATH, this::handleProbability);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Starts accepting requests on a background thread
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits up to the delay for running requests to finish
+	 * @param delaySeconds longest time to wait for running requests
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 * @return the bound port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Answers one probability query
+	 * @param exchange request and response of the query
+	 * @throws IOException if the response cannot be written
+	 */
+	private void handleProbability(HttpExchange exchange) throws IOException {
+		try {
+			//Every outcome picks a status and body first so the response is only sent once.
+			//An IOException while sending then reaches the server instead of a second response.
+			int status;
+			String body;
+			if(!exchange.getRequestMethod().equals("GET")) {
+				status = 405;
+				body = "{\"error\":\"Only GET is supported.\"}";
+			} else {
+				try {
+					body = probabilityJson(exchange.getRequestURI().getRawQuery());
+					status = 200;
+				} catch(IllegalArgumentException e) {
+					//Also covers NumberFormatException from the numeric parameters
+					status = 400;
+					body = "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}";
+				} catch(RuntimeException e) {
+					status = 500;
+					body = "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}";
+				}
+			}
+			respond(exchange, status, body);
+		} finally {
+			//An Error or a failed response would otherwise leave the exchange open
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Calculates the probability asked for by a query
+	 * @param rawQuery query string of the request, may be null
+	 * @return JSON object with the parameters and the exact probability
+	 * @throws IllegalArgumentException if a parameter is missing, not a number or out of range,
+	 * or the vote does not exist
+	 */
+	private String probabilityJson(String rawQuery) {
+		HashMap<String, String> query = parseQuery(rawQuery);
+		String vote = required(query, "vote");
+		BigInteger repeal = new BigInteger(inRange(query, "repeal", MIN_REPEAL, MAX_REPEAL));
+		BigInteger chance = new BigInteger(inRange(query, "chance", MIN_CHANCE, MAX_CHANCE));
+		int maxCount = Integer.parseInt(inRange(query, "max", 0, maxCountLimit));
+
+		Fraction result = calculator.probability(vote, repeal, chance, maxCount);
+		return "{\"vote\":" + quote(vote) + ",\"repeal\":" + repeal + ",\"chance\":" + chance
+				+ ",\"max_count\":" + maxCount + ",\"probability\":\"" + result + "\"}";
+	}
+
+	/**
+	 * Writes a JSON response and closes the exchange
+	 * @param exchange request and response of the query
+	 * @param status HTTP status code
+	 * @param json body of the response
+	 * @throws IOException if the response cannot be written
+	 */
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Splits a raw query string into decoded parameters
+	 * @param rawQuery query string after the ?, or null if there is none
+	 * @return map of parameter names to values
+	 */
+	private static HashMap<String, String> parseQuery(String rawQuery) {
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		if(rawQuery == null)
+			return parameters;
+		for(String pair : rawQuery.split("&")) {
+			int split = pair.indexOf('=');
+			if(split < 0)
+				continue;
+			parameters.put(URLDecoder.decode(pair.substring(0, split), StandardCharsets.UTF_8),
+					URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	/**
+	 * Returns a parameter that the query must have
+	 * @param query parameters of the query
+	 * @param name name of the parameter
+	 * @return value of the parameter
+	 * @throws IllegalArgumentException if the parameter is missing
+	 */
+	private static String required(HashMap<String, String> query, String name) {
+		String value = query.get(name);
+		if(value == null)
+			throw new IllegalArgumentException("Missing parameter " + name + ".");
+		return value;
+	}
+
+	/**
+	 * Returns an integer parameter that the query must have within a range
+	 * @param query parameters of the query
+	 * @param name name of the parameter
+	 * @param min lowest allowed value
+	 * @param max highest allowed value
+	 * @return value of the parameter
+	 * @throws IllegalArgumentException if the parameter is missing, not an integer or out of range
+	 */
+	private static String inRange(HashMap<String, String> query, String name, int min, int max) {
+		String value = required(query, name);
+		int number = Integer.parseInt(value);
+		if(number < min || number > max)
+			throw new IllegalArgumentException("Parameter " + name + " must be from " + min + " to " + max + ".");
+		return value;
+	}
+
+	/**
+	 * Quotes and escapes a string as a JSON string
+	 * @param text string to quote
+	 * @return the JSON string
+	 */
+	private static String quote(String text) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if(c < 0x20)
+				quoted.append(String.format("\\u%04x", (int) c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Creates the executor that runs the requests. Uses one virtual thread per request when the
+	 * JDK has them (Java 21 and later), so a request waiting on another's calculation does not
+	 * hold a platform thread. Older JDKs fall back to a cached pool of platform threads.
+	 * @return executor for the requests
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtualThreads.invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
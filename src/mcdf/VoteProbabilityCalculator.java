@@ -2,10 +2,21 @@ package mcdf;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Tool to calculate the probability of a vote type appearing in the next vote
@@ -25,33 +36,344 @@ public class VoteProbabilityCalculator {
 	 */
 	private static final String VOTE_WEIGHT_CSV_PATH = "23w13a_or_b_vote_weights.csv";
 
-	/** Map of the vote ID as string keys and weights as values */
-	public static HashMap<String, BigInteger> voteWeights = new HashMap<String, BigInteger>();
-	
-	/** Probability that an extra vote will be added at each step */
-	public static Fraction newVoteExtraEffectChance; 
-	
+	/** First argument that selects batch mode, which outputs the probability of every vote */
+	private static final String ALL_VOTES_FLAG = "--all";
+
+	/** First argument that selects sweep mode, which outputs the probability over a grid of values */
+	private static final String SWEEP_FLAG = "--sweep";
+
+	/** First argument that names a file to keep calculated results in between runs */
+	private static final String CACHE_FLAG = "--cache";
+
+	/** First argument that selects server mode, which answers HTTP queries until stopped */
+	private static final String SERVE_FLAG = "--serve";
+
+	/** First argument that selects distribution mode, which outputs the probability of each position */
+	private static final String DISTRIBUTION_FLAG = "--distribution";
+
+	/** First argument that selects pair mode, which writes the probability of every pair of votes to a CSV file */
+	private static final String PAIRS_FLAG = "--pairs";
+
+	/** Significant digits of the decimals written by pair mode */
+	private static final int PAIRS_DIGITS = 20;
+
+	/** First argument that selects simulation mode, which estimates the probability by sampling votes */
+	private static final String SIMULATE_FLAG = "--simulate";
+
+	/** First argument that selects horizon mode, which outputs the probability within the next numbers of votes */
+	private static final String HORIZON_FLAG = "--horizon";
+
+	/** First argument that selects what-if mode, which outputs the probability before and after changing a weight */
+	private static final String WHAT_IF_FLAG = "--what-if";
+
+	/** First argument that selects backend mode, which calculates one vote with a chosen number type */
+	private static final String BACKEND_FLAG = "--backend";
+
+	/** First argument that selects tolerance mode, which outputs an interval around the probability of one vote */
+	private static final String TOLERANCE_FLAG = "--tolerance";
+
+	/** First argument that selects memo budget mode, which calculates one vote with a bounded memo table */
+	private static final String MEMO_BUDGET_FLAG = "--memo-budget";
+
+	/** First argument that calculates the single class results on several threads */
+	private static final String PARALLEL_FLAG = "--parallel";
+
+	/** First argument that turns on {@link CalculationMetrics} and prints them after the run */
+	private static final String METRICS_FLAG = "--metrics";
+
 	/**
-	 * A hash map of cached previous results. The keys are the multiset of removed weights 
-	 * and the value is the resulting probability fraction that came from those removals. The
-	 * multiset is a map where the key represents the weight removed and the value is the number
-	 * of times that weight was removed from the list.
+	 * Map of the vote ID as string keys and weights as values. Filled by loadCSV and copied into
+	 * a new {@link WeightTable} by each static calculation, so changes only affect later calls.
+	 * Long-lived or multi-threaded callers should share a {@link ProbabilityCalculator} instead.
 	 */
-	public static HashMap<HashMap<BigInteger, Integer>, Fraction> cachedResults = 
-			new HashMap<HashMap<BigInteger, Integer>, Fraction>();
+	public static HashMap<String, BigInteger> voteWeights = new HashMap<String, BigInteger>();
+
+	/** Store of results kept between runs, opened by the --cache argument. Null if not used. */
+	private static PersistentMemoStore memoStore;
+
+	/** Pool that calculates the branches in parallel, created by the --parallel argument. Null if not used. */
+	private static ForkJoinPool parallelPool;
 	
 	/**
-	 * 
-	 * @param args if empty, the user will be prompted to input the four required values. Otherwise,
-	 * args must be <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>.
-	 * Outputs the exact result fraction to standard out.
+	 * Runs the calculator in the mode selected by the arguments and prints the results to
+	 * standard out.
+	 * @param args one of:
+	 * <ul>
+	 * <li>nothing: prompts for the four values of the single vote calculation</li>
+	 * <li>&lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt;: exact probability of one vote</li>
+	 * <li>--all &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt;: probability of every vote</li>
+	 * <li>--sweep &lt;vote_id&gt; &lt;repeal_min&gt; &lt;repeal_max&gt; &lt;chance_min&gt; &lt;chance_max&gt;
+	 * &lt;max_count_min&gt; &lt;max_count_max&gt;: probability over every combination of the ranges</li>
+	 * <li>--serve &lt;port&gt; [max_count_limit]: HTTP queries until stopped, see {@link ProbabilityServer}</li>
+	 * <li>--distribution &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt;: probability of each
+	 * position and vote length, see {@link PositionDistribution}</li>
+	 * <li>--pairs &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt; &lt;output_csv&gt;: probability of every pair
+	 * of votes, see {@link CooccurrenceMatrix}</li>
+	 * <li>--simulate &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt; &lt;samples&gt;: estimate by
+	 * simulation, see {@link MonteCarloEstimator}</li>
+	 * <li>--horizon &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt; &lt;votes&gt;...: probability
+	 * within each number of next votes, see {@link Horizon}</li>
+	 * <li>--what-if &lt;vote_id&gt; &lt;changed_vote_id&gt; &lt;new_weight&gt; &lt;repeal&gt; &lt;chance&gt;
+	 * &lt;max_count&gt;: probability before and after a weight change, see {@link IncrementalCalculator}</li>
+	 * <li>--backend &lt;exact|double|digits&gt; &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt;:
+	 * probability of one vote in the chosen number type, see {@link NumericBackend}</li>
+	 * <li>--tolerance &lt;tolerance&gt; &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt; &lt;max_count&gt;: interval
+	 * no wider than the tolerance that contains the probability of one vote, see {@link Interval}</li>
+	 * <li>--memo-budget &lt;bytes&gt; &lt;lru|deepest_first&gt; &lt;vote_id&gt; &lt;repeal&gt; &lt;chance&gt;
+	 * &lt;max_count&gt;: exact probability of one vote with the memo kept under the budget, see
+	 * {@link BoundedMemoTable}</li>
+	 * </ul>
+	 * repeal, chance and max_count are the new_vote_repeal_vote_chance,
+	 * new_vote_extra_effect_chance and new_vote_extra_effect_max_count values. Any mode can be
+	 * preceded by --metrics to print the work done to standard error and expose it over JMX, and
+	 * by --cache &lt;file&gt; to keep results between runs in the modes that support it and by
+	 * --parallel &lt;threads&gt; to calculate the branches of one vote on several threads.
 	 * @throws FileNotFoundException if 23w13a_or_b_vote_weights.csv file is missing
-	 * @throws IllegalArgumentException if the args length is not 0 or 4
-	 * @throws IllegalArgumentException if the inputted vote ID does not exist in the file
+	 * @throws IOException if the cache file or the pair output file cannot be read or written
+	 * @throws IllegalArgumentException if the number of arguments does not match the selected
+	 * mode, a number cannot be parsed or an inputted vote ID does not exist in the file
 	 */
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
+		if(args.length >= 1 && args[0].equals(METRICS_FLAG)) {
+			//Run the remaining arguments with the counters on
+			CalculationMetrics.registerMBean();
+			CalculationMetrics.get().setEnabled(true);
+			try {
+				main(Arrays.copyOfRange(args, 1, args.length));
+			} finally {
+				System.err.print(CalculationMetrics.get().report());
+			}
+			return;
+		}
+		
+		if(args.length >= 2 && args[0].equals(CACHE_FLAG)) {
+			//Run the remaining arguments with the store open
+			memoStore = new PersistentMemoStore(Paths.get(args[1]));
+			try {
+				main(Arrays.copyOfRange(args, 2, args.length));
+			} finally {
+				memoStore.close();
+				memoStore = null;
+			}
+			return;
+		}
+		
+		if(args.length >= 2 && args[0].equals(PARALLEL_FLAG)) {
+			//Run the remaining arguments with the branches split over the pool
+			int threads = Integer.parseInt(args[1]);
+			parallelPool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+			try {
+				main(Arrays.copyOfRange(args, 2, args.length));
+			} finally {
+				parallelPool.shutdown();
+				parallelPool = null;
+			}
+			return;
+		}
+		
 		loadCSV();
 		
+		if(args.length > 0 && args[0].equals(ALL_VOTES_FLAG)) {
+			if(args.length != 4) {
+				System.out.println("The arguments should be: " + ALL_VOTES_FLAG + " <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 4 with " + ALL_VOTES_FLAG + ".");
+			}
+			
+			Map<String, String> results = calculateAllProbabilities(new BigInteger(args[1]), new BigInteger(args[2]), Integer.parseInt(args[3]));
+			
+			//Output every vote and its exact probability in CSV format
+			for(Map.Entry<String, String> entry : results.entrySet())
+				System.out.println(entry.getKey() + "," + entry.getValue());
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(SERVE_FLAG)) {
+			if(args.length != 2 && args.length != 3) {
+				System.out.println("The arguments should be: " + SERVE_FLAG + " <port> [max_count_limit]");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 2 or 3 with " + SERVE_FLAG + ".");
+			}
+			
+			int maxCountLimit = args.length == 3 ? Integer.parseInt(args[2]) : ProbabilityServer.DEFAULT_MAX_COUNT_LIMIT;
+			ProbabilityServer server = new ProbabilityServer(currentCalculator(), Integer.parseInt(args[1]), maxCountLimit);
+			server.start();
+			System.out.println("Listening on port " + server.getPort());
+			
+			//Stop the server and write the cache file when the JVM is stopped
+			PersistentMemoStore store = memoStore;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.stop(0);
+				if(store != null) {
+					try {
+						store.close();
+					} catch(IOException e) {
+						System.err.println("Could not write cache file: " + e.getMessage());
+					}
+				}
+			}));
+			
+			//Keep the cache file open for as long as the server runs
+			try {
+				Thread.currentThread().join();
+			} catch(InterruptedException e) {
+				server.stop(0);
+			}
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(DISTRIBUTION_FLAG)) {
+			if(args.length != 5) {
+				System.out.println("The arguments should be: " + DISTRIBUTION_FLAG + " <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 5 with " + DISTRIBUTION_FLAG + ".");
+			}
+			
+			PositionDistribution distribution = currentCalculator().distribution(args[1], new BigInteger(args[2]),
+					new BigInteger(args[3]), Integer.parseInt(args[4]));
+			
+			//Output every position and length probability in CSV format
+			System.out.print(distribution.toCSV());
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(PAIRS_FLAG)) {
+			if(args.length != 5) {
+				System.out.println("The arguments should be: " + PAIRS_FLAG + " <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count> <output_csv>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 5 with " + PAIRS_FLAG + ".");
+			}
+			
+			CooccurrenceMatrix matrix = currentCalculator().cooccurrence(new BigInteger(args[1]), new BigInteger(args[2]),
+					Integer.parseInt(args[3]));
+			
+			//Write the matrix with one row and column per vote
+			try(Writer out = Files.newBufferedWriter(Paths.get(args[4]))) {
+				matrix.writeCSV(out, PAIRS_DIGITS);
+			}
+			System.out.println("Wrote " + matrix.getVoteIds().size() + "x" + matrix.getVoteIds().size() + " matrix to " + args[4]);
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(SIMULATE_FLAG)) {
+			if(args.length != 6) {
+				System.out.println("The arguments should be: " + SIMULATE_FLAG + " <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count> <samples>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 6 with " + SIMULATE_FLAG + ".");
+			}
+			
+			MonteCarloEstimator.Estimate estimate = new MonteCarloEstimator(voteWeights).estimate(args[1],
+					Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), Long.parseLong(args[5]),
+					System.nanoTime(), ForkJoinPool.commonPool());
+			
+			//Output the estimate, its confidence interval and the simulation speed
+			System.out.println("Estimated probability: " + estimate.getEstimate());
+			System.out.println("95% confidence interval: [" + estimate.getLower() + ", " + estimate.getUpper() + "]");
+			System.out.printf("Samples per second: %.0f%n", estimate.getSamplesPerSecond());
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(HORIZON_FLAG)) {
+			if(args.length < 6) {
+				System.out.println("The arguments should be: " + HORIZON_FLAG + " <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count> <votes>...");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be at least 6 with " + HORIZON_FLAG + ".");
+			}
+			
+			int[] votes = new int[args.length - 5];
+			for(int i = 0; i < votes.length; i++)
+				votes[i] = Integer.parseInt(args[i + 5]);
+			Fraction[] results = currentCalculator().horizon(args[1], new BigInteger(args[2]), new BigInteger(args[3]),
+					Integer.parseInt(args[4]), votes);
+			
+			//Output every number of votes and its exact probability in CSV format
+			System.out.println("votes,probability");
+			for(int i = 0; i < votes.length; i++)
+				System.out.println(votes[i] + "," + results[i]);
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(WHAT_IF_FLAG)) {
+			if(args.length != 7) {
+				System.out.println("The arguments should be: " + WHAT_IF_FLAG + " <vote_id> <changed_vote_id> <new_weight> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 7 with " + WHAT_IF_FLAG + ".");
+			}
+			
+			IncrementalCalculator calculator = new IncrementalCalculator(voteWeights);
+			BigInteger repealPercentage = new BigInteger(args[4]);
+			BigInteger newVoteExtraEffectPercentage = new BigInteger(args[5]);
+			int newVoteExtraEffectMaxCount = Integer.parseInt(args[6]);
+			Fraction before = calculator.probability(args[1], repealPercentage, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+			calculator.setWeight(args[2], new BigInteger(args[3]));
+			Fraction after = calculator.probability(args[1], repealPercentage, newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount);
+			
+			//Output both exact probabilities and how much of the calculation was reused
+			System.out.println("Exact probability before:");
+			System.out.println(before);
+			System.out.println("Exact probability after:");
+			System.out.println(after);
+			System.out.println("States recalculated: " + calculator.getLastCalculatedStates() + " of " + calculator.getCachedStates());
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(BACKEND_FLAG)) {
+			if(args.length != 6) {
+				System.out.println("The arguments should be: " + BACKEND_FLAG + " <exact|double|digits> <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 6 with " + BACKEND_FLAG + ".");
+			}
+			
+			String result = calculateProbabilityWith(args[1], args[2], new BigInteger(args[3]), new BigInteger(args[4]),
+					Integer.parseInt(args[5]));
+			
+			//Output the probability in the chosen number type
+			System.out.println("Probability:");
+			System.out.println(result);
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(TOLERANCE_FLAG)) {
+			if(args.length != 6) {
+				System.out.println("The arguments should be: " + TOLERANCE_FLAG + " <tolerance> <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 6 with " + TOLERANCE_FLAG + ".");
+			}
+			
+			Interval result = currentCalculator().probabilityWithin(args[2], new BigDecimal(args[1]), new BigInteger(args[3]),
+					new BigInteger(args[4]), Integer.parseInt(args[5]));
+			
+			//Output the bounds of the interval
+			System.out.println("Probability within " + args[1] + ":");
+			System.out.println(result);
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(MEMO_BUDGET_FLAG)) {
+			if(args.length != 7) {
+				System.out.println("The arguments should be: " + MEMO_BUDGET_FLAG + " <bytes> <lru|deepest_first> <vote_id> <new_vote_repeal_vote_chance> <new_vote_extra_effect_chance> <new_vote_extra_effect_max_count>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 7 with " + MEMO_BUDGET_FLAG + ".");
+			}
+			
+			BoundedMemoTable<Fraction> memo = BoundedMemoTable.forFractions(Long.parseLong(args[1]),
+					BoundedMemoTable.EvictionPolicy.valueOf(args[2].toUpperCase(Locale.ROOT)));
+			Fraction result = currentCalculator().probability(args[3], memo, new BigInteger(args[4]), new BigInteger(args[5]),
+					Integer.parseInt(args[6]));
+			
+			//Output the exact probability and how the memo table was used
+			System.out.println("Exact probability:");
+			System.out.println(result);
+			System.out.println("Memo table: " + memo);
+			return;
+		}
+		
+		if(args.length > 0 && args[0].equals(SWEEP_FLAG)) {
+			if(args.length != 8) {
+				System.out.println("The arguments should be: " + SWEEP_FLAG + " <vote_id> <repeal_min> <repeal_max> <extra_chance_min> <extra_chance_max> <max_count_min> <max_count_max>");
+				throw new IllegalArgumentException("Invalid number of arguments. Argument length must be 8 with " + SWEEP_FLAG + ".");
+			}
+			
+			ArrayList<String> rows = sweepProbabilities(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+					Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]), Integer.parseInt(args[7]));
+			
+			//Output every combination and its exact probability in CSV format
+			System.out.println("new_vote_repeal_vote_chance,new_vote_extra_effect_chance,new_vote_extra_effect_max_count,probability");
+			for(String row : rows)
+				System.out.println(row);
+			return;
+		}
+		
 		//Input parameters
 		String chosenVote;
 		BigInteger repealPercentage;
@@ -123,30 +445,106 @@ public class VoteProbabilityCalculator {
 	 */
 	public static String calculateProbability(String chosenVote, BigInteger repealPercentage,
 			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
-		newVoteExtraEffectChance = new Fraction(newVoteExtraEffectPercentage, new BigInteger("100"));
-
-		BigInteger chosenWeight = voteWeights.get(chosenVote);
-		if(chosenWeight == null)
-			throw new IllegalArgumentException("Vote ID " + chosenVote + " does not exist.");
-		
-		//Create list of other votes weights
-		ArrayList<BigInteger> weights = new ArrayList<BigInteger>();
-		for(BigInteger weight : voteWeights.values()) {
-			weights.add(weight);
+		return currentCalculator().probability(chosenVote, repealPercentage, newVoteExtraEffectPercentage,
+				newVoteExtraEffectMaxCount).toString();
+	}
+	
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote with a chosen number
+	 * type. The calculation is the same as the exact one, but double and BigDecimal results are
+	 * rounded at every step, which is faster at high max counts.
+	 * @param backendName "exact" for a fraction, "double" for a double or a positive number of
+	 * significant digits for a BigDecimal
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage Current new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage Current new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount  Current new_vote_extra_effect_max_count value
+	 * @return String representing the probability that chosenVote will appear in the next vote
+	 * @throws IllegalArgumentException if the backend name is not recognized or the number of
+	 * digits is not positive
+	 */
+	public static String calculateProbabilityWith(String backendName, String chosenVote, BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		ProbabilityCalculator calculator = currentCalculator();
+		if(backendName.equals("exact")) {
+			return calculator.probability(chosenVote, new FractionBackend(), repealPercentage,
+					newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount).toString();
+		}
+		if(backendName.equals("double")) {
+			return String.valueOf(calculator.probability(chosenVote, new DoubleBackend(), repealPercentage,
+					newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount));
 		}
-		weights.remove(chosenWeight);
-		
-		//Initialize removedWeights to be empty for first recursive call
-		HashMap<BigInteger, Integer> removedWeights = new HashMap<BigInteger, Integer>();
-		
-		//Recursive call to find the probability from combined votes given input values
-		Fraction result = VoteProbabilityCalculator.probabilityGivenMultipleRounds(chosenWeight, weights, removedWeights, newVoteExtraEffectMaxCount + 1);
-		
-		//Multiply result by the probability it is not a repeal vote
-		Fraction notRepealProbability = Fraction.ONE.subtract(new Fraction(repealPercentage, new BigInteger("100")));
-		result = result.multiply(notRepealProbability);
 		
-		return result.toString();
+		int digits = Integer.parseInt(backendName);
+		if(digits <= 0)
+			throw new IllegalArgumentException("Number of digits must be positive.");
+		return calculator.probability(chosenVote, new BigDecimalBackend(new MathContext(digits)), repealPercentage,
+				newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount).toPlainString();
+	}
+	
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote as an exact polynomial
+	 * in the new_vote_extra_effect_chance. The polynomial only needs to be calculated once per max
+	 * count and can then be evaluated at any extra effect chance.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealPercentage Current new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount  Current new_vote_extra_effect_max_count value
+	 * @return polynomial in the extra effect chance (as a fraction, not a percentage) giving the
+	 * exact probability that chosenVote will appear in the next vote
+	 */
+	public static Polynomial calculateProbabilityPolynomial(String chosenVote, BigInteger repealPercentage,
+			int newVoteExtraEffectMaxCount) {
+		return currentCalculator().probabilityPolynomial(chosenVote, repealPercentage, newVoteExtraEffectMaxCount);
+	}
+	
+	/**
+	 * Calculates the probability of every vote type appearing in the next vote considering combined
+	 * and repeal votes. Votes with the same weight have the same probability, so the calculation is
+	 * only done once per distinct weight.
+	 * @param repealPercentage Current new_vote_repeal_vote_chance value percentage integer
+	 * @param newVoteExtraEffectPercentage Current new_vote_extra_effect_chance value percentage integer
+	 * @param newVoteExtraEffectMaxCount  Current new_vote_extra_effect_max_count value
+	 * @return Map sorted by vote ID with Strings representing the exact fraction of the probability that
+	 * each vote will appear in the next vote.
+	 */
+	public static TreeMap<String, String> calculateAllProbabilities(BigInteger repealPercentage,
+			BigInteger newVoteExtraEffectPercentage, int newVoteExtraEffectMaxCount) {
+		TreeMap<String, String> results = new TreeMap<String, String>();
+		for(Map.Entry<String, Fraction> entry : currentCalculator().allProbabilities(repealPercentage,
+				newVoteExtraEffectPercentage, newVoteExtraEffectMaxCount).entrySet()) {
+			results.put(entry.getKey(), entry.getValue().toString());
+		}
+		return results;
+	}
+	
+	/**
+	 * Calculates the probability of a vote type appearing in the next vote for every combination
+	 * of the three percentage and count values in the inclusive ranges. See
+	 * {@link ProbabilityCalculator#sweep}.
+	 * @param chosenVote ID String of the vote to check the probability of
+	 * @param repealMin lowest new_vote_repeal_vote_chance percentage integer
+	 * @param repealMax highest new_vote_repeal_vote_chance percentage integer
+	 * @param extraChanceMin lowest new_vote_extra_effect_chance percentage integer
+	 * @param extraChanceMax highest new_vote_extra_effect_chance percentage integer
+	 * @param maxCountMin lowest new_vote_extra_effect_max_count value
+	 * @param maxCountMax highest new_vote_extra_effect_max_count value
+	 * @return CSV rows in the format repeal,extra_chance,max_count,fraction ordered by max
+	 * count, then extra effect chance, then repeal percentage
+	 * @throws IllegalArgumentException if a range minimum is greater than its maximum
+	 */
+	public static ArrayList<String> sweepProbabilities(String chosenVote, int repealMin, int repealMax,
+			int extraChanceMin, int extraChanceMax, int maxCountMin, int maxCountMax) {
+		return currentCalculator().sweep(chosenVote, repealMin, repealMax, extraChanceMin, extraChanceMax,
+				maxCountMin, maxCountMax);
+	}
+	
+	/**
+	 * Creates a calculator from a snapshot of the current voteWeights map
+	 * @return calculator for the currently loaded votes, using the cache file if one is open and
+	 * the parallel pool if there is one
+	 */
+	private static ProbabilityCalculator currentCalculator() {
+		return new ProbabilityCalculator(new WeightTable(voteWeights), parallelPool, memoStore);
 	}
 	
 	/**
@@ -169,11 +567,16 @@ public class VoteProbabilityCalculator {
 	 * been removed from the list. 
 	 * @param rounds depth to continue checking. Starts as the total possible length of a
 	 * combined vote.
+	 * @param newVoteExtraEffectChance probability that an extra vote will be added at each step
+	 * @param cachedResults cached previous results. The keys are the multiset of removed weights
+	 * and the value is the resulting probability fraction that came from those removals. Must
+	 * start empty for each new eventWeight, rounds or newVoteExtraEffectChance.
 	 * @return a fraction representing the exact probability that the eventWeight will appear
 	 * in a vote including in any combined vote.
 	 */
 	public static Fraction probabilityGivenMultipleRounds(BigInteger eventWeight, 
-			ArrayList<BigInteger> otherWeights, HashMap<BigInteger, Integer> removedWeights, int rounds) {
+			ArrayList<BigInteger> otherWeights, HashMap<BigInteger, Integer> removedWeights, int rounds,
+			Fraction newVoteExtraEffectChance, HashMap<HashMap<BigInteger, Integer>, Fraction> cachedResults) {
 		//Check for cached result
 		Fraction cacheResult = cachedResults.get(removedWeights);
 		if(cacheResult != null)
@@ -194,7 +597,7 @@ public class VoteProbabilityCalculator {
 				
 				//Recursive call to check the probability the event will be chosen given a vote was removed
 				Fraction branchProbability = probabilityGivenMultipleRounds(eventWeight, updatedWeightList, 
-						addToMultiset(removedWeights, otherWeights.get(i)), rounds - 1);
+						addToMultiset(removedWeights, otherWeights.get(i)), rounds - 1, newVoteExtraEffectChance, cachedResults);
 				
 				//Add the probability of the event being included given the ith vote is removed times the probability that
 				//the ith probability was chosen and removed
@@ -208,6 +611,7 @@ public class VoteProbabilityCalculator {
 		}
 		
 		//Save result in cache
+		probability = probability.reduce();
 		cachedResults.put(removedWeights, probability);
 		return probability;
 	}
@@ -252,7 +656,7 @@ public class VoteProbabilityCalculator {
 	 * @param bigInteger member that should be added to the multiset
 	 * @return multiset with the bigInteger member added
 	 */
-	private static HashMap<BigInteger, Integer> addToMultiset(HashMap<BigInteger, Integer> multiset,
+	static HashMap<BigInteger, Integer> addToMultiset(HashMap<BigInteger, Integer> multiset,
 			BigInteger bigInteger) {
 		HashMap<BigInteger, Integer> retMultiset = new HashMap<BigInteger, Integer>();
 		for(BigInteger k : multiset.keySet()) {
@@ -0,0 +1,437 @@
+package mcdf;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calculates the same probability as {@link VoteProbabilityCalculator#probabilityGivenMultipleRounds}
+ * but branches once per weight class instead of once per vote. Removing any vote of a weight
+ * class leads to the same remaining weighted list (up to which vote was removed), so the branch
+ * for a class is calculated once and multiplied by the number of votes still left in that class.
+ * Each level of the recursion therefore costs one iteration per distinct weight rather than one
+ * iteration per vote.
+ */
+public class WeightClassEngine {
+	/**
+	 * Number of levels whose branches are forked as separate tasks by
+	 * {@link #probabilityParallel}. Two levels give one task per pair of weight classes.
+	 */
+	private static final int PARALLEL_DEPTH = 2;
+
+	/** Backend used by the exact Fraction methods */
+	private static final FractionBackend EXACT = new FractionBackend();
+
+	/** Weight classes of the full vote list */
+	private final WeightTable table;
+
+	/** Weight class of the vote of interest */
+	private final int eventClass;
+
+	/** Probability that an extra vote will be added at each step */
+	private final Fraction newVoteExtraEffectChance;
+
+	/** Total possible length of a combined vote */
+	private final int rounds;
+
+	/**
+	 * Number of other votes in each weight class. Equal to the table counts except the
+	 * event class, which does not include the vote of interest.
+	 */
+	private final int[] otherCounts;
+
+	/**
+	 * Number of bits used for the removed count of each weight class in a packed key. The
+	 * count of class i is stored at bit i * bitsPerClass.
+	 */
+	private final int bitsPerClass;
+
+	/**
+	 * Table index step of each weight class in the bottom-up table. The table index of a count
+	 * vector is the mixed radix number with one digit per class, where each class can have at
+	 * most min(count, rounds - 1) votes removed.
+	 */
+	private final int[] strides;
+
+	/** Number of entries in the bottom-up table */
+	private final int tableSize;
+
+	/**
+	 * Cached previous results. The keys are the number of votes removed from each weight
+	 * class packed into a long and the value is the resulting probability fraction that came
+	 * from those removals.
+	 */
+	private final LongHashMap<Fraction> cachedResults = new LongHashMap<Fraction>();
+
+	/**
+	 * Creates an engine for one vote of interest and one set of extra effect values.
+	 * @param table weight classes of the full vote list
+	 * @param eventClass weight class of the vote that the user wants to find the probability of
+	 * @param newVoteExtraEffectChance probability that an extra vote will be added at each step
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 * @throws IllegalArgumentException if the removed counts of every weight class cannot be
+	 * packed into a long
+	 */
+	public WeightClassEngine(WeightTable table, int eventClass, Fraction newVoteExtraEffectChance, int rounds) {
+		this.table = table;
+		this.eventClass = eventClass;
+		this.newVoteExtraEffectChance = newVoteExtraEffectChance;
+		this.rounds = rounds;
+
+		otherCounts = new int[table.getClassCount()];
+		for(int i = 0; i < otherCounts.length; i++)
+			otherCounts[i] = table.getVoteCount(i);
+		otherCounts[eventClass]--;
+
+		bitsPerClass = Math.max(1, 32 - Integer.numberOfLeadingZeros(rounds - 1));
+		if(bitsPerClass * otherCounts.length > Long.SIZE)
+			throw new IllegalArgumentException("Too many weight classes for " + rounds + " rounds.");
+
+		strides = new int[otherCounts.length];
+		int size = 1;
+		for(int i = 0; i < otherCounts.length; i++) {
+			strides[i] = size;
+			size *= Math.min(otherCounts[i], rounds - 1) + 1;
+		}
+		tableSize = size;
+	}
+
+	/**
+	 * Creates an engine for one vote of interest that is only used for
+	 * {@link #probabilityPolynomial()}, which does not need a fixed extra effect chance.
+	 * @param table weight classes of the full vote list
+	 * @param eventClass weight class of the vote that the user wants to find the probability of
+	 * @param rounds total possible length of a combined vote (new_vote_extra_effect_max_count + 1)
+	 * @throws IllegalArgumentException if the removed counts of every weight class cannot be
+	 * packed into a long
+	 */
+	public WeightClassEngine(WeightTable table, int eventClass, int rounds) {
+		this(table, eventClass, null, rounds);
+	}
+
+	/**
+	 * Finds the probability of the vote of interest appearing anywhere in a vote including
+	 * combined votes.
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probabilityGivenMultipleRounds() {
+		if(newVoteExtraEffectChance == null)
+			throw new IllegalStateException("Engine was created without an extra effect chance.");
+		return probabilityGivenRemoved(EXACT, newVoteExtraEffectChance, cachedResults, new int[otherCounts.length], 0L,
+				BigInteger.ZERO, rounds);
+	}
+
+	/**
+	 * Finds the same probability as {@link #probabilityGivenMultipleRounds()} using the provided
+	 * memo table instead of the engine's own, such as one from {@link PersistentMemoStore}. The
+	 * table must only hold results of this vote of interest, extra effect chance and rounds.
+	 * @param memo cached results keyed by the packed removed counts
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probabilityGivenMultipleRounds(MemoTable<Fraction> memo) {
+		if(newVoteExtraEffectChance == null)
+			throw new IllegalStateException("Engine was created without an extra effect chance.");
+		return probabilityGivenRemoved(EXACT, newVoteExtraEffectChance, memo, new int[otherCounts.length], 0L,
+				BigInteger.ZERO, rounds);
+	}
+
+	/**
+	 * Finds the same probability as {@link #probabilityGivenMultipleRounds()} by running the
+	 * branches of the first levels as fork/join tasks. Each task only waits on the tasks it
+	 * forked itself. Below {@link #PARALLEL_DEPTH} the subtrees are calculated recursively and
+	 * share one concurrent memo table, so a state reached from several subtrees is usually
+	 * only calculated once.
+	 * @param pool pool that runs the branch tasks
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probabilityParallel(ForkJoinPool pool) {
+		if(newVoteExtraEffectChance == null)
+			throw new IllegalStateException("Engine was created without an extra effect chance.");
+
+		ConcurrentMemoTable<Fraction> memo = new ConcurrentMemoTable<Fraction>();
+		return pool.invoke(new BranchTask<Fraction>(EXACT, newVoteExtraEffectChance, memo, new int[otherCounts.length], 0L,
+				BigInteger.ZERO, rounds, 0));
+	}
+
+	/**
+	 * Finds the same probability as {@link #probabilityGivenMultipleRounds()} without recursion.
+	 * Every possible state of removed votes is a fixed-length count vector with one counter per
+	 * weight class. The states are stored in a flat table indexed by the count vector and filled
+	 * level by level, starting from the states where the combined vote is already full and
+	 * ending with the state where nothing has been removed. The table size only depends on the
+	 * weight classes and the number of rounds.
+	 * @return a fraction representing the exact probability that the vote of interest will
+	 * appear in a vote including in any combined vote. Repeal votes are not considered.
+	 */
+	public Fraction probabilityBottomUp() {
+		if(newVoteExtraEffectChance == null)
+			throw new IllegalStateException("Engine was created without an extra effect chance.");
+		return probabilityBottomUp(EXACT, newVoteExtraEffectChance);
+	}
+
+	/**
+	 * Finds the probability of the vote of interest appearing with the same table as
+	 * {@link #probabilityBottomUp()}, using any number type. The extra effect chance given to
+	 * the constructor is not used.
+	 * @param backend operations of the number type
+	 * @param chance probability that an extra vote will be added at each step, in the number type
+	 * @return the probability that the vote of interest will appear in a vote including in any
+	 * combined vote. Repeal votes are not considered.
+	 */
+	public <T> T probabilityBottomUp(NumericBackend<T> backend, T chance) {
+		@SuppressWarnings("unchecked")
+		T[] results = (T[]) new Object[tableSize];
+		ArrayList<ArrayList<Integer>> levels = levelIndices();
+		int[] removedCounts = new int[otherCounts.length];
+
+		for(int level = rounds - 1; level >= 0; level--) {
+			for(int idx : levels.get(level)) {
+				decode(idx, strides, removedCounts);
+				if(CalculationMetrics.enabled())
+					CalculationMetrics.node(level);
+				BigInteger totalWeight = table.getTotalWeight().subtract(removedWeight(removedCounts));
+
+				//The deeper level is already filled, so every branch can be read from the table
+				NumericBackend.Accumulator<T> branchSum = backend.newAccumulator();
+				if(level < rounds - 1) {
+					for(int i = 0; i < otherCounts.length; i++) {
+						int remaining = otherCounts[i] - removedCounts[i];
+						if(remaining == 0)
+							continue;
+
+						branchSum.add(results[idx + strides[i]], branchFactor(i, remaining));
+					}
+				}
+				//Normalize once per state so later levels multiply smaller numbers
+				results[idx] = backend.normalize(combineBranches(backend, chance, totalWeight, branchSum));
+			}
+
+			//Only the level directly below is read, so the rest can be released
+			if(level + 1 < rounds) {
+				for(int idx : levels.get(level + 1))
+					results[idx] = null;
+			}
+		}
+		return results[0];
+	}
+
+	/**
+	 * Finds the probability of the vote of interest appearing as an exact polynomial in the
+	 * extra effect chance p. The table is filled the same way as {@link #probabilityBottomUp()}
+	 * but every extra round multiplies by the variable instead of a fixed chance, so the
+	 * coefficient of p^k is the probability that the vote is the kth extra vote without the
+	 * chance factor. The extra effect chance given to the constructor is not used.
+	 * @return polynomial of degree rounds - 1 in the extra effect chance. Evaluating it at a chance
+	 * gives the same result as {@link #probabilityBottomUp()} with that chance.
+	 */
+	public Polynomial probabilityPolynomial() {
+		return probabilityBottomUp(new PolynomialBackend(), Polynomial.VARIABLE);
+	}
+
+	/**
+	 * Groups the table indices by the number of votes removed. Indices whose count vector
+	 * removes more than rounds - 1 votes are left out since they can never be reached.
+	 * @return list where element i holds the indices of every state with i votes removed
+	 */
+	private ArrayList<ArrayList<Integer>> levelIndices() {
+		ArrayList<ArrayList<Integer>> levels = new ArrayList<ArrayList<Integer>>();
+		for(int level = 0; level < rounds; level++)
+			levels.add(new ArrayList<Integer>());
+		int[] removedCounts = new int[otherCounts.length];
+		for(int idx = 0; idx < tableSize; idx++) {
+			int level = decode(idx, strides, removedCounts);
+			if(level < rounds)
+				levels.get(level).add(idx);
+		}
+		return levels;
+	}
+
+	/**
+	 * Converts a table index back into the count vector it represents
+	 * @param idx table index
+	 * @param strides table index step of each weight class
+	 * @param removedCounts array that is filled with the counts of the index
+	 * @return the total number of votes removed
+	 */
+	private static int decode(int idx, int[] strides, int[] removedCounts) {
+		int level = 0;
+		for(int i = strides.length - 1; i >= 0; i--) {
+			removedCounts[i] = idx / strides[i];
+			idx %= strides[i];
+			level += removedCounts[i];
+		}
+		return level;
+	}
+
+	/**
+	 * Sums the weights of the removed votes
+	 * @param removedCounts number of votes removed from each weight class
+	 * @return the total weight removed
+	 */
+	private BigInteger removedWeight(int[] removedCounts) {
+		BigInteger weight = BigInteger.ZERO;
+		for(int i = 0; i < removedCounts.length; i++)
+			weight = weight.add(table.getClassWeight(i).multiply(BigInteger.valueOf(removedCounts[i])));
+		return weight;
+	}
+
+	/**
+	 * Returns the combined weight of the votes left in a weight class. A branch of the class
+	 * contributes its probability times this factor to the sum of the branches.
+	 * @param weightClass index of the weight class
+	 * @param remaining number of votes of the class that have not been removed
+	 * @return the class weight times the number of remaining votes
+	 */
+	private BigInteger branchFactor(int weightClass, int remaining) {
+		return table.getClassWeight(weightClass).multiply(BigInteger.valueOf(remaining));
+	}
+
+	/**
+	 * Finds the probability of a state from the sum of its branches. Every branch shares the
+	 * same total weight and extra effect chance, so those are applied once to the whole sum:
+	 * (eventWeight + chance * sum of branch probability * branch factor) / totalWeight.
+	 * @param backend operations of the number type
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param totalWeight total weight of the votes left in the state, including the vote of interest
+	 * @param branchSum sum of the branch probabilities times their branch factors
+	 * @return the probability of the state before normalization
+	 */
+	private <T> T combineBranches(NumericBackend<T> backend, T chance, BigInteger totalWeight,
+			NumericBackend.Accumulator<T> branchSum) {
+		T chosenThisRound = backend.fromRatio(table.getClassWeight(eventClass), BigInteger.ONE);
+		T numerator = backend.add(chosenThisRound, backend.multiply(branchSum.sum(), chance));
+		return backend.divide(numerator, totalWeight);
+	}
+
+	/**
+	 * Recursive method to find the probability of the vote of interest appearing given that
+	 * the votes counted in removedCounts were already chosen in earlier rounds.
+	 * @param backend operations of the number type
+	 * @param chance probability that an extra vote will be added at each step
+	 * @param memo cached results keyed by the packed removed counts
+	 * @param removedCounts number of votes removed from each weight class in this possibility
+	 * branch. Modified during the call but restored before returning.
+	 * @param key removedCounts packed into a long, used to check the cached results
+	 * @param removedWeight sum of the weights of the removed votes
+	 * @param roundsLeft depth to continue checking
+	 * @return the probability that the vote of interest will appear in the remaining rounds
+	 */
+	private <T> T probabilityGivenRemoved(NumericBackend<T> backend, T chance, MemoTable<T> memo, int[] removedCounts,
+			long key, BigInteger removedWeight, int roundsLeft) {
+		//Check for cached result
+		T cacheResult = memo.get(key);
+		if(CalculationMetrics.enabled())
+			CalculationMetrics.cacheLookup(cacheResult != null);
+		if(cacheResult != null)
+			return cacheResult;
+		if(CalculationMetrics.enabled())
+			CalculationMetrics.node(rounds - roundsLeft);
+
+		BigInteger totalWeight = table.getTotalWeight().subtract(removedWeight);
+
+		//If there is still a chance for a combined vote, add the probabilities that the
+		//desired vote is chosen given the choice of a vote from every weight class.
+		NumericBackend.Accumulator<T> branchSum = backend.newAccumulator();
+		if(roundsLeft > 1) {
+			for(int i = 0; i < otherCounts.length; i++) {
+				int remaining = otherCounts[i] - removedCounts[i];
+				if(remaining == 0)
+					continue;
+
+				removedCounts[i]++;
+				T branchProbability = probabilityGivenRemoved(backend, chance, memo, removedCounts,
+						key + (1L << (i * bitsPerClass)), removedWeight.add(table.getClassWeight(i)), roundsLeft - 1);
+				removedCounts[i]--;
+
+				branchSum.add(branchProbability, branchFactor(i, remaining));
+			}
+		}
+		//Normalize once before caching so later branches multiply smaller numbers
+		T probability = backend.normalize(combineBranches(backend, chance, totalWeight, branchSum));
+		memo.put(key, probability, rounds - roundsLeft);
+		return probability;
+	}
+
+	/**
+	 * Fork/join task that finds the probability of the vote of interest appearing given that
+	 * the votes counted in removedCounts were already chosen in earlier rounds
+	 * @param <T> type of the numbers
+	 */
+	private final class BranchTask<T> extends RecursiveTask<T> {
+		private static final long serialVersionUID = 1L;
+
+		/** Operations of the number type */
+		private final NumericBackend<T> backend;
+
+		/** Probability that an extra vote will be added at each step */
+		private final T chance;
+
+		/** Cached results shared by every task */
+		private final ConcurrentMemoTable<T> memo;
+
+		/** Number of votes removed from each weight class. Not shared with other tasks. */
+		private final int[] removedCounts;
+
+		/** removedCounts packed into a long */
+		private final long key;
+
+		/** Sum of the weights of the removed votes */
+		private final BigInteger removedWeight;
+
+		/** Depth to continue checking */
+		private final int roundsLeft;
+
+		/** Number of levels above this task */
+		private final int depth;
+
+		private BranchTask(NumericBackend<T> backend, T chance, ConcurrentMemoTable<T> memo, int[] removedCounts,
+				long key, BigInteger removedWeight, int roundsLeft, int depth) {
+			this.backend = backend;
+			this.chance = chance;
+			this.memo = memo;
+			this.removedCounts = removedCounts;
+			this.key = key;
+			this.removedWeight = removedWeight;
+			this.roundsLeft = roundsLeft;
+			this.depth = depth;
+		}
+
+		@Override
+		protected T compute() {
+			if(depth >= PARALLEL_DEPTH || roundsLeft <= 1)
+				return probabilityGivenRemoved(backend, chance, memo, removedCounts, key, removedWeight, roundsLeft);
+
+			if(CalculationMetrics.enabled())
+				CalculationMetrics.node(rounds - roundsLeft);
+
+			//Fork every branch before waiting on any of them
+			ArrayList<BranchTask<T>> branches = new ArrayList<BranchTask<T>>();
+			for(int i = 0; i < otherCounts.length; i++) {
+				if(otherCounts[i] == removedCounts[i]) {
+					branches.add(null);
+					continue;
+				}
+
+				int[] branchCounts = removedCounts.clone();
+				branchCounts[i]++;
+				BranchTask<T> branch = new BranchTask<T>(backend, chance, memo, branchCounts, key + (1L << (i * bitsPerClass)),
+						removedWeight.add(table.getClassWeight(i)), roundsLeft - 1, depth + 1);
+				branch.fork();
+				branches.add(branch);
+			}
+
+			BigInteger totalWeight = table.getTotalWeight().subtract(removedWeight);
+
+			NumericBackend.Accumulator<T> branchSum = backend.newAccumulator();
+			for(int i = 0; i < otherCounts.length; i++) {
+				if(branches.get(i) != null)
+					branchSum.add(branches.get(i).join(), branchFactor(i, otherCounts[i] - removedCounts[i]));
+			}
+			return backend.normalize(combineBranches(backend, chance, totalWeight, branchSum));
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package mcdf;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of the vote weights grouped into weight classes. Every vote with the
+ * same weight behaves identically in the weighted list, so the calculation only needs
+ * to know each distinct weight and how many votes have that weight. The 23w13a_or_b
+ * list only has five distinct weights (1, 7, 125, 500, 1000) across its 180 votes.
+ */
+public class WeightTable {
+	/** Distinct vote weights in ascending order. Index is the weight class. */
+	private final BigInteger[] classWeights;
+
+	/** Number of votes in each weight class */
+	private final int[] classCounts;
+
+	/** Map of the vote ID as string keys and weight class index as values */
+	private final HashMap<String, Integer> voteClasses;
+
+	/** Sum of the weights of every vote in the table */
+	private final BigInteger totalWeight;
+
+	/**
+	 * Groups the provided vote weights into weight classes.
+	 * @param voteWeights map of the vote ID as string keys and weights as values
+	 * @throws IllegalArgumentException if voteWeights is empty or contains a weight that
+	 * is not positive
+	 */
+	public WeightTable(Map<String, BigInteger> voteWeights) {
+		if(voteWeights.isEmpty())
+			throw new IllegalArgumentException("Weight table must contain at least one vote.");
+
+		//Count the votes of each distinct weight, sorted by weight
+		TreeMap<BigInteger, Integer> counts = new TreeMap<BigInteger, Integer>();
+		for(BigInteger weight : voteWeights.values()) {
+			if(weight.signum() <= 0)
+				throw new IllegalArgumentException("Vote weight " + weight + " is not positive.");
+			counts.merge(weight, 1, Integer::sum);
+		}
+
+		classWeights = new BigInteger[counts.size()];
+		classCounts = new int[counts.size()];
+		BigInteger total = BigInteger.ZERO;
+		int idx = 0;
+		for(Map.Entry<BigInteger, Integer> entry : counts.entrySet()) {
+			classWeights[idx] = entry.getKey();
+			classCounts[idx] = entry.getValue();
+			total = total.add(entry.getKey().multiply(BigInteger.valueOf(entry.getValue())));
+			idx++;
+		}
+		totalWeight = total;
+
+		voteClasses = new HashMap<String, Integer>();
+		for(Map.Entry<String, BigInteger> entry : voteWeights.entrySet()) {
+			voteClasses.put(entry.getKey(), classOf(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Loads a weight table from a CSV file containing the votes and their weights in the format:
+	 * vote_id,100
+	 * @param path path of the CSV file
+	 * @return weight table of the votes in the file
+	 * @throws FileNotFoundException if the CSV file is missing
+	 */
+	public static WeightTable fromCSV(String path) throws FileNotFoundException {
+		HashMap<String, BigInteger> voteWeights = new HashMap<String, BigInteger>();
+		Scanner fileScan = new Scanner(new File(path));
+		while(fileScan.hasNext()) {
+			String line = fileScan.next();
+			String[] params = line.split(",");
+			voteWeights.put(params[0], new BigInteger(params[1]));
+		}
+		fileScan.close();
+		return new WeightTable(voteWeights);
+	}
+
+	/**
+	 * Returns the number of distinct weights in the table
+	 * @return the number of weight classes
+	 */
+	public int getClassCount() {
+		return classWeights.length;
+	}
+
+	/**
+	 * Returns the weight shared by every vote in the weight class
+	 * @param weightClass index of the weight class
+	 * @return the weight of the class
+	 */
+	public BigInteger getClassWeight(int weightClass) {
+		return classWeights[weightClass];
+	}
+
+	/**
+	 * Returns the number of votes that have the weight of the weight class
+	 * @param weightClass index of the weight class
+	 * @return the number of votes in the class
+	 */
+	public int getVoteCount(int weightClass) {
+		return classCounts[weightClass];
+	}
+
+	/**
+	 * Returns the sum of the weights of every vote in the table
+	 * @return the total weight
+	 */
+	public BigInteger getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Returns the IDs of every vote in the table
+	 * @return unmodifiable set of the vote IDs
+	 */
+	public Set<String> getVoteIds() {
+		return Collections.unmodifiableSet(voteClasses.keySet());
+	}
+
+	/**
+	 * Finds the weight class of a vote
+	 * @param voteId ID String of the vote
+	 * @return index of the weight class of the vote
+	 * @throws IllegalArgumentException if the vote ID does not exist in the table
+	 */
+	public int classOfVote(String voteId) {
+		Integer weightClass = voteClasses.get(voteId);
+		if(weightClass == null)
+			throw new IllegalArgumentException("Vote ID " + voteId + " does not exist.");
+		return weightClass;
+	}
+
+	/**
+	 * Finds the weight class with the provided weight
+	 * @param weight weight of the class
+	 * @return index of the weight class with the weight
+	 * @throws IllegalArgumentException if no vote has the provided weight
+	 */
+	public int classOf(BigInteger weight) {
+		for(int i = 0; i < classWeights.length; i++) {
+			if(classWeights[i].equals(weight))
+				return i;
+		}
+		throw new IllegalArgumentException("No vote has weight " + weight + ".");
+	}
+}